@@ -0,0 +1,132 @@
+/**
+ * An animal taking its turn, as Behaviour sees it: the animal's own
+ * state, a snapshot of its neighbours in the current field, and the
+ * cells it can take in the next field. Each step engine provides one,
+ * over however it keeps its animals, so that every engine runs the same
+ * turn: Neighbourhood over Animal objects, and ArrayStepEngine over the
+ * entries of its EntityStore.
+ *
+ * Neighbours are numbered from 0 to count() - 1, in the random order
+ * the behaviour relies on.
+ *
+ * @author Aman H, Chris M
+ */
+public interface Actor
+{
+    /**
+     * @return The animal's species.
+     */
+    Species getSpecies();
+
+    /**
+     * @return true if the animal is alive.
+     */
+    boolean isAlive();
+
+    /**
+     * @return The animal's age.
+     */
+    int getAge();
+
+    /**
+     * @param age The animal's new age.
+     */
+    void setAge(int age);
+
+    /**
+     * @return The animal's food level.
+     */
+    int getFoodValue();
+
+    /**
+     * @param foodValue The animal's new food level.
+     */
+    void setFoodValue(int foodValue);
+
+    /**
+     * Kill the animal, if it is still alive.
+     * @param cause How the animal dies.
+     */
+    void die(Organism.DeathCause cause);
+
+    /**
+     * @return The number of neighbouring cells.
+     */
+    int count();
+
+    /**
+     * @param i The neighbour number.
+     * @return The cell index of the neighbour.
+     */
+    int cellAt(int i);
+
+    /**
+     * @param i The neighbour number.
+     * @return The species occupying the neighbour, or null if empty.
+     */
+    Species speciesAt(int i);
+
+    /**
+     * @param mask Species, as made by Field.maskOf.
+     * @return true if a neighbour held a live member of one of them
+     *         when the turn began.
+     */
+    boolean hasLive(int mask);
+
+    /**
+     * @param i The neighbour number.
+     * @param mask Species, as made by Field.maskOf.
+     * @return true if a live member of one of them is in the neighbour.
+     */
+    boolean isLive(int i, int mask);
+
+    /**
+     * Kill the organism in a neighbouring cell, e.g. when it is eaten.
+     * @param i The neighbour number.
+     * @return true if it was killed, false if something else got to it first.
+     */
+    boolean kill(int i);
+
+    /**
+     * @return true if a neighbour is a mate for the animal: a live
+     *         animal of its species, old enough to breed and of the
+     *         opposite gender.
+     */
+    boolean hasMate();
+
+    /**
+     * @return true if a neighbour is still free in the next field.
+     */
+    boolean hasFree();
+
+    /**
+     * Claim a neighbour that is free in the next field.
+     * @return The cell index of the claimed neighbour, or -1 if none is free.
+     */
+    int takeFree();
+
+    /**
+     * @return The index of the animal's cell.
+     */
+    int getCell();
+
+    /**
+     * Claim a cell of the next field.
+     * @param index The cell.
+     * @return true if the cell was claimed, false if it was already taken.
+     */
+    boolean claim(int index);
+
+    /**
+     * Move the animal to a claimed cell of the next field.
+     * @param index The cell.
+     */
+    void moveTo(int index);
+
+    /**
+     * Place a new born of the animal's species in a claimed cell of the
+     * next field.
+     * @param index The cell.
+     */
+    void bear(int index);
+}
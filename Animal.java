@@ -1,14 +1,14 @@
-import java.util.List;
-
 /**
- * Abstract class representing animals in the Sealife simulation.
- * This class extends Organism and provides core functionality for all animal species,
+ * An animal in the Sealife simulation, of any animal species.
+ * This class extends Organism and provides the state of all animal species,
  * including predators and prey. Animals have gender, age, food levels, and can be affected by diseases.
+ * How an animal behaves is given by its species' row of traits, which
+ * Behaviour runs, so every species is an Animal.
  *
  * @author David J. Barnes, Michael Kölling, Aman H, Chris M
  * @version 7.0
  */
-public abstract class Animal extends Organism
+public class Animal extends Organism
 {
 
     // Gender enum
@@ -16,23 +16,119 @@ public abstract class Animal extends Organism
         MALE,FEMALE
     }
 
+    // The animal's species, and the traits that drive its behaviour.
+    private final Species species;
+    private final AnimalTraits traits;
     // The animal's gender.
-    private final Gender gender;
+    private Gender gender;
     private int age;
     // Food level, which is increased by eating plants/fish
     private int foodLevel = 0;
     private boolean infected = false;
-    private static final double INFECTION_PROBABILITY = 0.001;
-    private static final double SPREAD_PROBABILITY = 0.2;
+    static final double INFECTION_PROBABILITY = 0.001;
+    static final double SPREAD_PROBABILITY = 0.2;
 
     /**
-     * Constructor for objects of class Animal.
+     * Create an animal. An animal can be created as a new born (age zero
+     * and, if its species goes hungry, not hungry) or with a random age
+     * and food level. EntityStore.create draws the same numbers for a
+     * new born entity.
+     * @param species The animal's species, which must be an animal species.
+     * @param randomAge If true, the animal will have a random age.
      * @param location The animal's location.
+     * @throws IllegalArgumentException If the species is a plant.
      */
-    public Animal(boolean randomAge, Location location)
+    public Animal(Species species, boolean randomAge, Location location)
     {
         super(location);
-        this.gender = Math.random() < 0.5 ? Gender.MALE : Gender.FEMALE;
+        if(!species.isAnimal()) {
+            throw new IllegalArgumentException(species.getName() + " is not an animal.");
+        }
+        this.species = species;
+        this.traits = species.getTraits();
+        this.gender = rand.nextBoolean() ? Gender.MALE : Gender.FEMALE;
+        if(randomAge) {
+            setAge(rand.nextInt(traits.maxAge()));
+        }
+        if(traits.startingFood() > 0) {
+            setFoodValue(rand.nextInt(traits.startingFood()));
+        }
+    }
+
+    /**
+     * Create an animal with a known id and gender, drawing no random
+     * numbers, e.g. to stand for an entity of an EntityStore.
+     * @param species The animal's species, which must be an animal species.
+     * @param id The animal's id.
+     * @param gender The animal's gender.
+     * @param location The animal's location.
+     */
+    Animal(Species species, long id, Gender gender, Location location)
+    {
+        super(id, location);
+        this.species = species;
+        this.traits = species.getTraits();
+        this.gender = gender;
+    }
+
+    /**
+     * Act, taking a snapshot of this animal's neighbourhood first.
+     * The simulator normally calls update, which reuses a snapshot.
+     * @param context The simulation and step the animal acts in.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The new state being built.
+     */
+    @Override
+    public void act(SimulationContext context, Field currentField, Field nextFieldState)
+    {
+        if(isAlive()) {
+            Behaviour.act(new Neighbourhood().scan(currentField, nextFieldState, this), context);
+        }
+    }
+
+    /**
+     * Advance this animal by one step. One snapshot of the
+     * neighbourhood serves all of the turn's decisions; every species
+     * takes the same turn, driven by its traits, as run by Behaviour.
+     * The infection is caught and spread in a phase of its own; see
+     * InfectionPhase.
+     * @param context The simulation and step the animal acts in.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The new state being built.
+     * @param neighbourhood The snapshot to record the neighbourhood in.
+     */
+    @Override
+    public void update(SimulationContext context, Field currentField, Field nextFieldState,
+                       Neighbourhood neighbourhood)
+    {
+        if(isAlive()) {
+            Behaviour.act(neighbourhood.scan(currentField, nextFieldState, this), context);
+        }
+    }
+
+    /**
+     * @return The traits that drive this animal's behaviour.
+     */
+    public AnimalTraits getTraits()
+    {
+        return traits;
+    }
+
+    @Override
+    public final Species getSpecies()
+    {
+        return species;
+    }
+
+    /**
+     * Move this animal to a cell of the next field.
+     * @param nextFieldState The new state being built.
+     * @param index The index of the cell to move to.
+     */
+    protected void moveTo(Field nextFieldState, int index)
+    {
+        setLocation(nextFieldState.locationOf(index));
+        nextFieldState.placeOrganism(this, index);
     }
 
     /**
@@ -44,6 +140,15 @@ public abstract class Animal extends Organism
         return gender;
     }
 
+    /**
+     * Give the animal the gender it had when a checkpoint was taken.
+     * @param gender The animal's gender.
+     */
+    void restoreGender(Gender gender)
+    {
+        this.gender = gender;
+    }
+
     /**
      * Get the animal's age.
      * @return The animal's age.
@@ -61,18 +166,6 @@ public abstract class Animal extends Organism
     {
         this.age = age;
     }
-    /**
-     * Increase the age.
-     * This could result in the parrotfish's death.
-     */
-    protected void incrementAge(int max_age)
-    {
-        age++;
-        if(age > max_age) {
-            setDead();
-        }
-    }
-
     /**
      * Getter for animal's food value
      * @return Current Food Level
@@ -92,46 +185,14 @@ public abstract class Animal extends Organism
     }
 
     /**
-     * Decrement the food level of the animal therefore making them hungry.
-     */
-    protected void incrementHunger()
-    {
-        this.foodLevel--;
-        if(this.foodLevel <= 0) {
-            setDead();
-        }
-    }
-
-    /**
-     * An animal can breed if it has reached the breeding age.
-     * @param breeding_age The age at which the animal can breed up to.
+     * An animal can breed if it has reached its species' breeding age.
      * @return true if the animal can breed, false otherwise.
      */
-    protected boolean canBreed(int breeding_age)
+    protected boolean canBreed()
     {
-        return age >= breeding_age;
+        return age >= traits.breedingAge();
     }
     
-    /**
-     * Generate a number representing the number of births,
-     * if it can breed.
-     * @param breeding_age The age at which the animal can breed up to.
-     * @param breeding_probability The probability of breeding.
-     * @param max_litter_size The maximum number of offspring.
-     * @return The number of births (may be zero).
-     */
-    protected int breed(int breeding_age, double breeding_probability, int max_litter_size)
-    {
-        int births;
-        if(canBreed(breeding_age) && rand.nextDouble() <= breeding_probability) {
-            births = rand.nextInt(max_litter_size) + 1;
-        }
-        else {
-            births = 0;
-        }
-        return births;
-    }
-
     /**
      * Check if the animal is infected.
      * @return true if the animal is infected, false otherwise.
@@ -150,27 +211,14 @@ public abstract class Animal extends Organism
         this.infected = infected;
     }
 
-    /**
-     * Handle the infection from animal to animal by checking if already infected or there is a chance.
-     */
-    protected void handleInfection()
-    {
-        if(!infected && rand.nextDouble() <= INFECTION_PROBABILITY) {
-            infected = true;
-        }
-    }
-
-        protected void handleSpread(Field field) {
-        if (infected) {
-            List<Location> adjacent = field.getAdjacentLocations(getLocation());
-            for (Location loc : adjacent) {
-                Organism organism = field.getOrganismAt(loc);
-                if (organism instanceof Animal other && !other.isInfected()) {
-                    if (rand.nextDouble() <= SPREAD_PROBABILITY) {
-                        other.setInfected(true);
-                    }
-                }
-            }
-        }
+    @Override
+    public String toString() {
+        return species.getName() + "{" +
+                "age=" + getAge() +
+                ", alive=" + isAlive() +
+                ", location=" + getLocation() +
+                (traits.has(AnimalTraits.HUNGRY) ? ", foodLevel=" + getFoodValue() : "") +
+                ", gender=" + getGender() +
+                '}';
     }
 }
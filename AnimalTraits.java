@@ -0,0 +1,152 @@
+/**
+ * The characteristics of an animal species, one row per species, which
+ * drive the behaviour every animal shares. Behaviour.act runs the same
+ * turn for every species, in every step engine, and what differs
+ * between species is only what is in their rows: how long they live,
+ * when and how they breed, whether they go hungry or hunt blind in fog,
+ * the hours they move in, and in what order they eat, breed and move.
+ *
+ * A turn goes:
+ *   age, and get hungrier if HUNGRY; stop if dead.
+ *   breed first if BREEDS_BEFORE_EATING, in a breeding hour, if there
+ *     is a free neighbour.
+ *   eat, unless BLIND_IN_FOG and it is foggy; move to the meal if there
+ *     was one, and stop.
+ *   die of overcrowding if no neighbour is free.
+ *   claim a free neighbour to move to if CLAIMS_BEFORE_BREEDING.
+ *   breed, unless done already, in a breeding hour, if there is a free
+ *     neighbour.
+ *   move to the claimed neighbour if there is one; otherwise move to a
+ *     free neighbour in a moving hour, unless STAYS_AFTER_BIRTH and
+ *     young were born; otherwise stay put if CAN_STAY, or else die of
+ *     overcrowding.
+ * Animals that are NEEDS_MATE only breed next to a live mate of the
+ * opposite gender that is old enough to breed.
+ *
+ * Hours are given as masks with a bit per hour of the day; see hours.
+ *
+ * @param breedingAge The age at which the animal can start to breed.
+ * @param maxAge The age to which the animal can live.
+ * @param breedingProbability The default likelihood of breeding in a
+ *                            step in which it can; see Parameters.
+ * @param maxLitterSize The maximum number of births.
+ * @param startingFood A bound on the food level an animal starts with,
+ *                     or 0 if it starts with none.
+ * @param breedingHours The hours in which the animal breeds.
+ * @param movingHours The hours in which the animal moves if it has not
+ *                    eaten.
+ * @param flags The flags above that apply to the species.
+ *
+ * @author Aman H, Chris M
+ */
+public record AnimalTraits(int breedingAge, int maxAge, double breedingProbability,
+                           int maxLitterSize, int startingFood, int breedingHours,
+                           int movingHours, int flags)
+{
+    // The food level falls every step, and the animal starves at 0.
+    public static final int HUNGRY = 1;
+    // The animal does not eat when it is foggy.
+    public static final int BLIND_IN_FOG = 2;
+    // Breeding takes a mate.
+    public static final int NEEDS_MATE = 4;
+    // The animal breeds before it eats rather than when it has not eaten.
+    public static final int BREEDS_BEFORE_EATING = 8;
+    // The animal claims the cell it moves to before its young take theirs.
+    public static final int CLAIMS_BEFORE_BREEDING = 16;
+    // The animal stays where it is rather than die when it does not move.
+    public static final int CAN_STAY = 32;
+    // The animal stays where it is after giving birth.
+    public static final int STAYS_AFTER_BIRTH = 64;
+
+    // The flags' names, as used in species.txt, by bit.
+    private static final String[] FLAG_NAMES = {
+        "HUNGRY", "BLIND_IN_FOG", "NEEDS_MATE", "BREEDS_BEFORE_EATING",
+        "CLAIMS_BEFORE_BREEDING", "CAN_STAY", "STAYS_AFTER_BIRTH",
+    };
+
+    // The number of hours in a day.
+    private static final int HOURS_PER_DAY = 24;
+    /**
+     * Every hour of the day.
+     */
+    public static final int ALL_DAY = (1 << HOURS_PER_DAY) - 1;
+
+    /**
+     * Check that a row makes sense.
+     */
+    public AnimalTraits
+    {
+        if(maxAge <= 0 || breedingAge < 0 || maxLitterSize <= 0 || startingFood < 0) {
+            throw new IllegalArgumentException("Bad animal traits.");
+        }
+        // Ages and food levels are kept as shorts, by EntityStore and in
+        // checkpoints, and an animal ages one step past its maximum.
+        if(maxAge >= Short.MAX_VALUE || breedingAge >= Short.MAX_VALUE
+           || startingFood >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Ages and food levels must be below "
+                                               + Short.MAX_VALUE + ".");
+        }
+        if(!(breedingProbability >= 0 && breedingProbability <= 1)) {
+            throw new IllegalArgumentException("The breeding probability must be between 0 and 1.");
+        }
+    }
+
+    /**
+     * Make a mask of the hours from one to another, inclusive.
+     * The hours wrap around midnight if from is later than to, so
+     * hours(19, 5) is the night.
+     * @param from The first hour, from 0 to 23.
+     * @param to The last hour, from 0 to 23.
+     * @return A mask with a bit set for each of the hours.
+     */
+    public static int hours(int from, int to)
+    {
+        if(from < 0 || from >= HOURS_PER_DAY || to < 0 || to >= HOURS_PER_DAY) {
+            throw new IllegalArgumentException("Hours must be from 0 to 23.");
+        }
+        int upToTo = (2 << to) - 1;
+        int fromOn = ALL_DAY & -(1 << from);
+        return from <= to ? upToTo & fromOn : upToTo | fromOn;
+    }
+
+    /**
+     * @param name A flag's name, e.g. "HUNGRY".
+     * @return The flag, or 0 if there is none by that name.
+     */
+    public static int flagNamed(String name)
+    {
+        for(int bit = 0; bit < FLAG_NAMES.length; bit++) {
+            if(FLAG_NAMES[bit].equals(name)) {
+                return 1 << bit;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param flag One of the flags, e.g. HUNGRY.
+     * @return true if the flag applies to the species.
+     */
+    public boolean has(int flag)
+    {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @param hour The hour of the day.
+     * @return true if the animal breeds at that hour.
+     */
+    public boolean breedsAt(int hour)
+    {
+        return (breedingHours & (1 << hour)) != 0;
+    }
+
+    /**
+     * @param hour The hour of the day.
+     * @return true if the animal moves at that hour.
+     */
+    public boolean movesAt(int hour)
+    {
+        return (movingHours & (1 << hour)) != 0;
+    }
+}
@@ -0,0 +1,434 @@
+import java.util.Arrays;
+
+/**
+ * A step engine that keeps the state of the organisms in an EntityStore
+ * (parallel primitive arrays) and runs the behaviour of each species as
+ * a tight loop over them, instead of calling act on one object after
+ * another. Every animal takes the same turn as in the other engines,
+ * Behaviour.act, through an Actor over its entry in the store.
+ *
+ * The organisms are updated one species at a time: plants first, so
+ * that animals see which cells they hold, then the animals in the order
+ * species.txt lists them. Claims for cells always succeed, as
+ * with the sequential engine; this engine runs on the calling thread.
+ *
+ * The state of an organism lives only in the store. The engine places
+ * entities, not Organism objects, in the next field, which makes an
+ * organism's object only when something asks the field for it, such as
+ * a view, a checkpoint or the replay log, or another engine taking over.
+ * Organisms that the engine did not place itself, such as newly grown
+ * plants, are taken into the store at the start of a step, and the
+ * infections caught in the simulator's infection phase are read from
+ * the cell types.
+ *
+ * @author Aman H, Chris M
+ */
+public class ArrayStepEngine implements StepEngine
+{
+    // The species by ordinal, as kept in the store, and the mask of
+    // each made by Field.maskOf, for testing against the food web.
+    private static final Species[] SPECIES = Species.values();
+    private static final int[] MASKS = new int[SPECIES.length];
+    static {
+        for(Species species : SPECIES) {
+            MASKS[species.ordinal()] = Field.maskOf(species);
+        }
+    }
+    // The order in which species are updated: plants, then animals.
+    private static final Species[] ORDER = Arrays.stream(SPECIES)
+        .sorted((a, b) -> Boolean.compare(a.isAnimal(), b.isAnimal()))
+        .toArray(Species[]::new);
+
+    // The state of every organism.
+    private final EntityStore store = new EntityStore();
+    // The live entities of each species, in the order of their cells.
+    private final int[][] members = new int[Species.values().length][16];
+    private final int[] memberCounts = new int[Species.values().length];
+    // The entities that died or were displaced in this step or died
+    // in the last, to be given up at its end unless they are still in
+    // the next field.
+    private int[] leaving = new int[16];
+    private int leavingCount;
+    // The field built by the last step and that step's number, used to
+    // tell whether the store still matches the current field.
+    private Field lastNext;
+    private int lastStep;
+
+    // The neighbourhood of the entity being updated: the neighbouring
+    // cells in visiting order, a bit for each that is still free in
+    // the next field, and a bit per species with a live member among
+    // them, as made by Field.maskOf.
+    private final NeighbourCursor cursor = new NeighbourCursor();
+    private final int[] around = new int[8];
+    private int aroundCount;
+    private int freeMask;
+    private int liveMask;
+    // The animal taking its turn, as Behaviour sees it.
+    private final Turn turn = new Turn();
+    // The fields of the step being made, and the simulation and step.
+    private Field current, next;
+    private SimulationContext context;
+
+    /**
+     * Update every organism in the current field, building the next state.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The cleared field the next state is built in.
+     */
+    @Override
+    public void step(SimulationContext context, Field currentField, Field nextFieldState)
+    {
+        int step = context.getStep();
+        this.context = context;
+        current = currentField;
+        next = nextFieldState;
+        boolean continuing = currentField == lastNext && step == lastStep + 1;
+        if(!continuing) {
+            // Another engine or a reset has changed the field; start
+            // again from its organisms, giving any entities of the last
+            // step their objects first.
+            currentField.createOrganisms();
+            store.clear();
+            leavingCount = 0;
+        }
+        gather(continuing);
+
+        for(Species species : ORDER) {
+            int[] list = members[species.ordinal()];
+            int count = memberCounts[species.ordinal()];
+            if(!species.isAnimal()) {
+                // Plants stay where they are.
+                for(int i = 0; i < count; i++) {
+                    int e = list[i];
+                    if((store.flags[e] & EntityStore.ALIVE) != 0) {
+                        place(e, store.cell[e]);
+                    }
+                }
+                continue;
+            }
+            for(int i = 0; i < count; i++) {
+                if(begin(list[i])) {
+                    Behaviour.act(turn, context);
+                }
+            }
+        }
+        releaseLeaving();
+        store.forgetOrganisms();
+        lastNext = nextFieldState;
+        lastStep = step;
+    }
+
+    /**
+     * Sort the live entities of the current field into their species,
+     * cell by cell, taking any organisms that are not yet in the store
+     * into it. Empty chunks are skipped.
+     * @param continuing true if the current field was built by the last
+     *                   step, so its entities are those of the store.
+     */
+    private void gather(boolean continuing)
+    {
+        Arrays.fill(memberCounts, 0);
+        for(int index = current.nextOccupied(0); index >= 0; index = current.nextOccupied(index + 1)) {
+            int e = continuing ? current.getEntity(index) : -1;
+            if(e < 0) {
+                Organism anOrganism = current.getOrganismAt(index);
+                if(!anOrganism.isAlive()) {
+                    continue;
+                }
+                e = store.adopt(anOrganism, index);
+                current.adoptEntity(store, e, index);
+            }
+            else {
+                store.flags[e] &= ~EntityStore.PLACED;
+                if((store.flags[e] & EntityStore.ALIVE) == 0) {
+                    // Died after it was placed in the last step.
+                    leave(e);
+                    continue;
+                }
+                if((current.getType(index) & Field.INFECTED) != 0) {
+                    // The infection phase marks the cell types.
+                    store.flags[e] |= EntityStore.INFECTED;
+                }
+            }
+            int s = store.species[e];
+            if(memberCounts[s] == members[s].length) {
+                members[s] = Arrays.copyOf(members[s], members[s].length * 2);
+            }
+            members[s][memberCounts[s]++] = e;
+        }
+    }
+
+    /**
+     * Start an animal's turn: select its random stream and record its
+     * neighbourhood. The infection is caught and spread before the
+     * engine runs, by the simulator's InfectionPhase.
+     * @param e The animal's entity id.
+     * @return true if the animal is alive and should act.
+     */
+    private boolean begin(int e)
+    {
+        if((store.flags[e] & EntityStore.ALIVE) == 0) {
+            return false;
+        }
+        context.select(store.streamId[e]);
+        scan(store.cell[e]);
+        turn.e = e;
+        return true;
+    }
+
+    /**
+     * Record the neighbouring cells of a cell in a random order, noting
+     * which are still free in the next field and which species live in
+     * them.
+     * @param index The cell.
+     */
+    private void scan(int index)
+    {
+        NeighbourCursor it = current.neighbours(index, cursor);
+        aroundCount = 0;
+        freeMask = 0;
+        liveMask = 0;
+        while(it.hasNext()) {
+            int cell = it.next();
+            int type = current.getType(cell);
+            if((type & Field.ALIVE) != 0) {
+                liveMask |= 1 << (type & Field.SPECIES_BITS);
+            }
+            if((next.getType(cell) & Field.ALIVE) == 0) {
+                freeMask |= 1 << aroundCount;
+            }
+            around[aroundCount++] = cell;
+        }
+    }
+
+    /**
+     * Claim the first neighbouring cell that is free in the next field.
+     * @return The cell, or -1 if none is free.
+     */
+    private int takeFree()
+    {
+        if(freeMask == 0) {
+            return -1;
+        }
+        int i = Integer.numberOfTrailingZeros(freeMask);
+        freeMask &= freeMask - 1;
+        return around[i];
+    }
+
+    /**
+     * Put an entity into a cell of the next field. A live entity
+     * already there is lost, as with Field.placeOrganism.
+     * @param e The entity id.
+     * @param index The cell.
+     */
+    private void place(int e, int index)
+    {
+        int lost = next.getEntity(index);
+        if(lost >= 0 && lost != e && (store.flags[lost] & EntityStore.ALIVE) != 0) {
+            leave(lost);
+        }
+        store.cell[e] = index;
+        store.flags[e] |= EntityStore.PLACED;
+        next.placeEntity(store, e, index, false);
+    }
+
+    /**
+     * Kill an entity, taking its death into account in the field it was
+     * last placed in.
+     * @param e An entity id.
+     * @param cause How the entity dies.
+     */
+    private void die(int e, Organism.DeathCause cause)
+    {
+        if(!store.kill(e, cause)) {
+            return;
+        }
+        if((store.flags[e] & EntityStore.PLACED) == 0) {
+            current.entityDied(store.cell[e]);
+        }
+        else if(next.getEntity(store.cell[e]) == e) {
+            next.entityDied(store.cell[e]);
+        }
+        leave(e);
+    }
+
+    /**
+     * Note an entity to be given up at the end of the step.
+     * @param e The entity id.
+     */
+    private void leave(int e)
+    {
+        if((store.flags[e] & EntityStore.LEAVING) != 0) {
+            return;
+        }
+        store.flags[e] |= EntityStore.LEAVING;
+        if(leavingCount == leaving.length) {
+            leaving = Arrays.copyOf(leaving, leavingCount * 2);
+        }
+        leaving[leavingCount++] = e;
+    }
+
+    /**
+     * Give up the entities that have left, keeping those still in the
+     * next field, i.e. that died after being placed there, until they
+     * are gathered from it in the next step.
+     */
+    private void releaseLeaving()
+    {
+        for(int i = 0; i < leavingCount; i++) {
+            int e = leaving[i];
+            store.flags[e] &= ~EntityStore.LEAVING;
+            if(next.getEntity(store.cell[e]) != e) {
+                store.release(e);
+            }
+        }
+        leavingCount = 0;
+    }
+
+    /**
+     * The animal taking its turn, as an Actor over its entry in the
+     * store and the neighbourhood recorded by scan.
+     */
+    private class Turn implements Actor
+    {
+        // The animal's entity id.
+        private int e;
+
+        @Override
+        public Species getSpecies()
+        {
+            return SPECIES[store.species[e]];
+        }
+
+        @Override
+        public boolean isAlive()
+        {
+            return (store.flags[e] & EntityStore.ALIVE) != 0;
+        }
+
+        @Override
+        public int getAge()
+        {
+            return store.age[e];
+        }
+
+        @Override
+        public void setAge(int age)
+        {
+            store.age[e] = (short) age;
+        }
+
+        @Override
+        public int getFoodValue()
+        {
+            return store.food[e];
+        }
+
+        @Override
+        public void setFoodValue(int foodValue)
+        {
+            store.food[e] = (short) foodValue;
+        }
+
+        @Override
+        public void die(Organism.DeathCause cause)
+        {
+            ArrayStepEngine.this.die(e, cause);
+        }
+
+        @Override
+        public int count()
+        {
+            return aroundCount;
+        }
+
+        @Override
+        public int cellAt(int i)
+        {
+            return around[i];
+        }
+
+        @Override
+        public Species speciesAt(int i)
+        {
+            int code = current.getType(around[i]) & Field.SPECIES_BITS;
+            return code != 0 ? SPECIES[code - 1] : null;
+        }
+
+        @Override
+        public boolean hasLive(int mask)
+        {
+            return (liveMask & mask) != 0;
+        }
+
+        @Override
+        public boolean isLive(int i, int mask)
+        {
+            return Field.isLive(current.getType(around[i]), mask);
+        }
+
+        @Override
+        public boolean kill(int i)
+        {
+            // Claims always succeed on the one thread.
+            ArrayStepEngine.this.die(current.getEntity(around[i]), Organism.DeathCause.EATEN);
+            current.markDead(around[i]);
+            return true;
+        }
+
+        @Override
+        public boolean hasMate()
+        {
+            // As Neighbourhood.findMate: the types the neighbours were
+            // placed with, not what has happened to them in this step.
+            int wanted = (store.species[e] + 1) | Field.ALIVE | Field.CAN_BREED
+                         | ((store.flags[e] & EntityStore.MALE) != 0 ? 0 : Field.MALE);
+            int tested = Field.SPECIES_BITS | Field.ALIVE | Field.CAN_BREED | Field.MALE;
+            for(int i = 0; i < aroundCount; i++) {
+                if((current.getType(around[i]) & tested) == wanted) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasFree()
+        {
+            return freeMask != 0;
+        }
+
+        @Override
+        public int takeFree()
+        {
+            return ArrayStepEngine.this.takeFree();
+        }
+
+        @Override
+        public int getCell()
+        {
+            return store.cell[e];
+        }
+
+        @Override
+        public boolean claim(int index)
+        {
+            // Claims always succeed on the one thread.
+            return true;
+        }
+
+        @Override
+        public void moveTo(int index)
+        {
+            place(e, index);
+        }
+
+        @Override
+        public void bear(int index)
+        {
+            int young = store.create(getSpecies(), index);
+            store.flags[young] |= EntityStore.PLACED;
+            next.placeEntity(store, young, index, true);
+        }
+    }
+}
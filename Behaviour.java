@@ -0,0 +1,189 @@
+import java.util.Random;
+
+/**
+ * The turn every animal takes, driven by its species' row of
+ * AnimalTraits; see AnimalTraits for the order of events. Every step
+ * engine runs this one turn, through the Actor it provides for the
+ * animal, so the species behave the same whichever engine is used.
+ *
+ * @author Aman H, Chris M
+ */
+public final class Behaviour
+{
+    // Draws come from the stream selected for the animal taking its turn.
+    private static final Random rand = Randomizer.getRandom();
+
+    private Behaviour()
+    {
+    }
+
+    /**
+     * Take an animal's turn.
+     * @param actor The animal, its neighbours and the next field.
+     * @param context The simulation and step the animal acts in.
+     */
+    public static void act(Actor actor, SimulationContext context)
+    {
+        AnimalTraits traits = actor.getSpecies().getTraits();
+        actor.setAge(actor.getAge() + 1);
+        if(actor.getAge() > traits.maxAge()) {
+            actor.die(Organism.DeathCause.AGE);
+        }
+        if(traits.has(AnimalTraits.HUNGRY)) {
+            actor.setFoodValue(actor.getFoodValue() - 1);
+            if(actor.getFoodValue() <= 0) {
+                actor.die(Organism.DeathCause.STARVATION);
+            }
+        }
+        if(!actor.isAlive()) {
+            return;
+        }
+        boolean breedingHour = traits.breedsAt(context.getTimeOfDay());
+        if(traits.has(AnimalTraits.BREEDS_BEFORE_EATING) && breedingHour && actor.hasFree()) {
+            giveBirth(actor, context);
+        }
+        // Move to a meal if there is one.
+        boolean blind = traits.has(AnimalTraits.BLIND_IN_FOG)
+                        && context.getWeather() == Weather.Condition.FOGGY;
+        int foodCell = blind ? -1 : eat(actor, context);
+        if(foodCell >= 0 && actor.claim(foodCell)) {
+            actor.moveTo(foodCell);
+            return;
+        }
+        if(!actor.hasFree()) {
+            // Overcrowding.
+            actor.die(Organism.DeathCause.OVERCROWDING);
+            return;
+        }
+        int nextCell = -1;
+        if(traits.has(AnimalTraits.CLAIMS_BEFORE_BREEDING)) {
+            nextCell = actor.takeFree();
+            if(nextCell < 0) {
+                // Other threads have taken the free cells.
+                actor.die(Organism.DeathCause.OVERCROWDING);
+                return;
+            }
+        }
+        boolean born = false;
+        if(!traits.has(AnimalTraits.BREEDS_BEFORE_EATING) && breedingHour && actor.hasFree()) {
+            born = giveBirth(actor, context);
+        }
+        if(nextCell >= 0) {
+            actor.moveTo(nextCell);
+        }
+        else if(traits.movesAt(context.getTimeOfDay()) && actor.hasFree()
+                && !(born && traits.has(AnimalTraits.STAYS_AFTER_BIRTH))) {
+            moveToFree(actor);
+        }
+        else if(traits.has(AnimalTraits.CAN_STAY)) {
+            stay(actor);
+        }
+        else {
+            // Overcrowding.
+            actor.die(Organism.DeathCause.OVERCROWDING);
+        }
+    }
+
+    /**
+     * Give birth, if the animal breeds in this step, into free
+     * neighbouring cells.
+     * @param actor The animal.
+     * @param context The simulation and step the animal acts in.
+     * @return true if the animal gave birth, false otherwise.
+     */
+    private static boolean giveBirth(Actor actor, SimulationContext context)
+    {
+        int births = breed(actor, context);
+        for(int b = 0; b < births && actor.hasFree(); b++) {
+            int cell = actor.takeFree();
+            if(cell < 0) {
+                // Another thread has taken the free cells.
+                break;
+            }
+            actor.bear(cell);
+        }
+        return births > 0;
+    }
+
+    /**
+     * Generate a number representing the number of births, if the
+     * animal is old enough to breed and, if its species needs one, has
+     * a mate next to it.
+     * @param actor The animal.
+     * @param context The simulation and step the animal acts in.
+     * @return The number of births (may be zero).
+     */
+    private static int breed(Actor actor, SimulationContext context)
+    {
+        Species species = actor.getSpecies();
+        AnimalTraits traits = species.getTraits();
+        if(actor.getAge() < traits.breedingAge()
+           || (traits.has(AnimalTraits.NEEDS_MATE) && !actor.hasMate())) {
+            return 0;
+        }
+        if(rand.nextDouble() <= context.getParameters().getBreedingProbability(species)) {
+            return rand.nextInt(traits.maxLitterSize()) + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Eat the first live neighbour the animal's species eats, as told by
+     * the food web, and take the food level the meal is worth.
+     * @param actor The animal.
+     * @param context The simulation and step the animal acts in.
+     * @return The cell of the meal, or -1 if there was nothing to eat.
+     */
+    private static int eat(Actor actor, SimulationContext context)
+    {
+        FoodWeb foodWeb = context.getFoodWeb();
+        Species species = actor.getSpecies();
+        int food = foodWeb.getFoodMask(species);
+        if(!actor.hasLive(food)) {
+            return -1;
+        }
+        for(int i = 0; i < actor.count(); i++) {
+            if(actor.isLive(i, food) && actor.kill(i)) {
+                actor.setFoodValue(foodWeb.getFoodValue(species, actor.speciesAt(i)));
+                return actor.cellAt(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move the animal to a free neighbouring cell of the next field, or
+     * kill it by overcrowding if other threads have taken them all.
+     * @param actor The animal.
+     */
+    private static void moveToFree(Actor actor)
+    {
+        int index = actor.takeFree();
+        if(index >= 0) {
+            actor.moveTo(index);
+        }
+        else {
+            actor.die(Organism.DeathCause.OVERCROWDING);
+        }
+    }
+
+    /**
+     * Keep the animal in its cell for the next step. If another organism
+     * has already taken the cell, move to a free neighbour instead, or
+     * die of overcrowding if there is none.
+     * @param actor The animal.
+     */
+    private static void stay(Actor actor)
+    {
+        int index = actor.getCell();
+        if(!actor.claim(index)) {
+            index = actor.takeFree();
+        }
+        if(index >= 0) {
+            actor.moveTo(index);
+        }
+        else {
+            actor.die(Organism.DeathCause.OVERCROWDING);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A saved state of a simulation, from which it can be resumed exactly.
+ * A checkpoint holds the step, the time of day, the weather and the
+ * seed of the random streams, and every organism of the field in the
+ * order the field lists them, since that is the order they are updated.
+ * The random streams are derived from the seed, the step and each
+ * organism's id, so no other generator state needs saving.
+ *
+ * Checkpoints are written and read in bulk through a memory-mapped
+ * file. The format, with all numbers little-endian, is a header:
+ *   int magic ("SLCK"), int version, int depth, int width, int step,
+ *   int time of day, int weather ordinal, long seed, int organism count;
+ * followed by one RECORD_SIZE-byte record per organism:
+ *   int cell index, byte species ordinal, byte flags (alive, infected,
+ *   male), short age, short food level, long id.
+ *
+ * @author Aman H, Chris M
+ */
+public class Checkpoint
+{
+    // Identifies the format: "SLCK".
+    private static final int MAGIC = 0x534c434b;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 * 7 + 8 + 4;
+    private static final int RECORD_SIZE = 4 + 1 + 1 + 2 + 2 + 8;
+    // Bits of the flags of a record.
+    private static final int ALIVE = 1;
+    private static final int INFECTED = 2;
+    private static final int MALE = 4;
+
+    // The state of the simulation outside the field.
+    private final int step;
+    private final int timeOfDay;
+    private final Weather.Condition weather;
+    private final long seed;
+
+    /**
+     * Describe the state of a simulation outside its field.
+     * @param step The current step.
+     * @param timeOfDay The current hour of the day.
+     * @param weather The current weather.
+     * @param seed The seed of the random streams.
+     */
+    public Checkpoint(int step, int timeOfDay, Weather.Condition weather, long seed)
+    {
+        this.step = step;
+        this.timeOfDay = timeOfDay;
+        this.weather = weather;
+        this.seed = seed;
+    }
+
+    /**
+     * Write this checkpoint, with the organisms of a field, to a file.
+     * @param path The file, which is replaced if it exists.
+     * @param field The field to save.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path, Field field) throws IOException
+    {
+        List<Organism> organisms = field.getOrganisms();
+        long size = HEADER_SIZE + (long) RECORD_SIZE * organisms.size();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                  .putInt(field.getDepth()).putInt(field.getWidth())
+                  .putInt(step).putInt(timeOfDay).putInt(weather.ordinal())
+                  .putLong(seed).putInt(organisms.size());
+            for(int i = 0; i < organisms.size(); i++) {
+                Organism anOrganism = organisms.get(i);
+                int flags = anOrganism.isAlive() ? ALIVE : 0;
+                int age = 0;
+                int food = 0;
+                if(anOrganism instanceof Animal animal) {
+                    flags |= animal.isInfected() ? INFECTED : 0;
+                    flags |= animal.getGender() == Animal.Gender.MALE ? MALE : 0;
+                    age = animal.getAge();
+                    food = animal.getFoodValue();
+                }
+                buffer.putInt(field.getOrganismCell(i))
+                      .put((byte) anOrganism.getSpecies().ordinal())
+                      .put((byte) flags)
+                      .putShort((short) age)
+                      .putShort((short) food)
+                      .putLong(anOrganism.getId());
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Read a checkpoint from a file, putting its organisms into a field.
+     * @param path The file.
+     * @param field The field to fill, which is cleared first. It must be
+     *              the size of the field that was saved.
+     * @return The state of the simulation outside the field.
+     * @throws IOException If the file cannot be read or is not a
+     *                     checkpoint for a field of this size.
+     */
+    public static Checkpoint read(Path path, Field field) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint.");
+            }
+            int version = buffer.getInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ".");
+            }
+            int depth = buffer.getInt();
+            int width = buffer.getInt();
+            if(depth != field.getDepth() || width != field.getWidth()) {
+                throw new IOException("The checkpoint is of a " + depth + "x" + width +
+                                      " field, not " + field.getDepth() + "x" + field.getWidth() + ".");
+            }
+            Checkpoint checkpoint = new Checkpoint(buffer.getInt(), buffer.getInt(),
+                                                   Weather.Condition.values()[buffer.getInt()],
+                                                   buffer.getLong());
+            int count = buffer.getInt();
+            if(buffer.remaining() < (long) RECORD_SIZE * count) {
+                throw new IOException(path + " is truncated.");
+            }
+            Species[] species = Species.values();
+            field.clear();
+            for(int i = 0; i < count; i++) {
+                int index = buffer.getInt();
+                Species kind = species[buffer.get()];
+                int flags = buffer.get();
+                int age = buffer.getShort();
+                int food = buffer.getShort();
+                long id = buffer.getLong();
+                Organism anOrganism = kind.create(field.locationOf(index));
+                anOrganism.restoreId(id);
+                if(anOrganism instanceof Animal animal) {
+                    animal.restoreGender((flags & MALE) != 0 ? Animal.Gender.MALE : Animal.Gender.FEMALE);
+                    animal.setAge(age);
+                    animal.setFoodValue(food);
+                    animal.setInfected((flags & INFECTED) != 0);
+                }
+                if((flags & ALIVE) == 0) {
+                    anOrganism.kill();
+                }
+                field.placeOrganism(anOrganism, index);
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * @return The step the checkpoint was taken at.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The hour of the day the checkpoint was taken at.
+     */
+    public int getTimeOfDay()
+    {
+        return timeOfDay;
+    }
+
+    /**
+     * @return The weather when the checkpoint was taken.
+     */
+    public Weather.Condition getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return The seed of the random streams.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+}
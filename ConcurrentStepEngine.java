@@ -0,0 +1,113 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A step engine that lets many threads update organisms at once,
+ * wherever they are in the field. The organism list is split into
+ * chunks on a ForkJoinPool, so idle workers steal chunks from busy ones
+ * even when the population is unevenly spread.
+ *
+ * Threads may compete for the same cell of the next field, so every
+ * move and birth first claims its cell atomically. If the claim fails
+ * the organism falls back to its next free neighbour, in the same random
+ * order the neighbourhood is recorded in. Prey is killed atomically, so
+ * it can only be eaten once. No locks are taken.
+ *
+ * Unlike the tiled engine, the outcome depends on how the threads
+ * happen to interleave, so runs are not reproducible.
+ *
+ * @author Aman H, Chris M
+ */
+public class ConcurrentStepEngine implements StepEngine
+{
+    // The default number of organisms updated by one task.
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    // The pool the organisms are updated on.
+    private final ForkJoinPool pool;
+    // The largest number of organisms updated by one task.
+    private final int chunkSize;
+
+    /**
+     * Create an engine using the common pool and the default chunk size.
+     */
+    public ConcurrentStepEngine()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create an engine.
+     * @param pool The pool to update the organisms on.
+     * @param chunkSize The largest number of organisms updated by one task.
+     */
+    public ConcurrentStepEngine(ForkJoinPool pool, int chunkSize)
+    {
+        if(chunkSize < 1) {
+            throw new IllegalArgumentException("Chunks must hold at least one organism.");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Update every organism in the current field, building the next state.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The cleared field the next state is built in.
+     */
+    @Override
+    public void step(SimulationContext context, Field currentField, Field nextFieldState)
+    {
+        List<Organism> organisms = currentField.getOrganisms();
+        nextFieldState.beginConcurrentUpdate(true);
+        try {
+            pool.invoke(new ChunkTask(organisms, 0, organisms.size(), context, currentField, nextFieldState));
+        }
+        finally {
+            nextFieldState.endConcurrentUpdate();
+        }
+    }
+
+    /**
+     * Updates a range of the organism list, splitting it in half until
+     * the range fits in one chunk.
+     */
+    private class ChunkTask extends RecursiveAction
+    {
+        private final List<Organism> organisms;
+        private final int from, to;
+        private final SimulationContext context;
+        private final Field currentField, nextFieldState;
+
+        ChunkTask(List<Organism> organisms, int from, int to, SimulationContext context,
+                  Field currentField, Field nextFieldState)
+        {
+            this.organisms = organisms;
+            this.from = from;
+            this.to = to;
+            this.context = context;
+            this.currentField = currentField;
+            this.nextFieldState = nextFieldState;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= chunkSize) {
+                Neighbourhood neighbourhood = new Neighbourhood();
+                for(int i = from; i < to; i++) {
+                    Organism anOrganism = organisms.get(i);
+                    context.select(anOrganism.getId());
+                    anOrganism.update(context, currentField, nextFieldState, neighbourhood);
+                }
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(organisms, from, middle, context, currentField, nextFieldState),
+                          new ChunkTask(organisms, middle, to, context, currentField, nextFieldState));
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * A statistics sink that prints the population of each species to
+ * standard output after every step.
+ *
+ * @author Aman H, Chris M
+ */
+public class ConsoleStatsSink implements StatsSink
+{
+    /**
+     * Print the population of each species.
+     * @param step The step that has just been made.
+     * @param field The state of the field after the step.
+     */
+    @Override
+    public void record(int step, Field field)
+    {
+        field.fieldStats();
+    }
+
+    /**
+     * Nothing is held back, so there is nothing to finish.
+     */
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,380 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs many headless simulations in one process to study how the
+ * parameters affect the outcome: every combination of the values given
+ * to vary (a grid of parameter points), each several times with
+ * different seeds (replicates).
+ *
+ * The simulations run side by side on a work-stealing pool with a
+ * thread per processor. Each runs on a single thread with the
+ * sequential engine, so it is the same as a run of its own with that
+ * seed and those parameters. Replicate r of every point uses the seed
+ * seed + r, so points are compared on the same random streams.
+ *
+ * For every run it records the step at which each species died out
+ * and the mean population of each species over the run, and all the
+ * runs are written to one CSV file, a row per run in grid order.
+ *
+ * @author Aman H, Chris M
+ */
+public class Ensemble
+{
+    // The size of the fields and the most steps a run makes.
+    private final int depth, width, steps;
+    // The values of each varied parameter, in the order they were given.
+    private final Map<String, double[]> grid = new LinkedHashMap<>();
+    // The number of runs at each point.
+    private int replicates = 1;
+    // The seed of the first replicate.
+    private long seed = Randomizer.getSeed();
+    // The number of runs made at once.
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Describe an ensemble of runs with the default parameters.
+     * @param depth Depth of the fields.
+     * @param width Width of the fields.
+     * @param steps The most steps a run makes. A run stops early once
+     *              it is no longer viable.
+     */
+    public Ensemble(int depth, int width, int steps)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+    }
+
+    /**
+     * Vary a parameter across the grid.
+     * @param name The parameter's name, e.g. SHARK_CREATION_PROBABILITY.
+     * @param values The values to run with.
+     * @throws IllegalArgumentException If there is no such parameter or
+     *                                  a value is not a probability.
+     */
+    public void vary(String name, double... values)
+    {
+        for(double value : values) {
+            Parameters.DEFAULTS.with(name, value);
+        }
+        grid.put(name, values.clone());
+    }
+
+    /**
+     * @param replicates The number of runs at each point of the grid.
+     */
+    public void setReplicates(int replicates)
+    {
+        if(replicates < 1) {
+            throw new IllegalArgumentException("There must be at least one replicate.");
+        }
+        this.replicates = replicates;
+    }
+
+    /**
+     * @param seed The seed of the first replicate at every point.
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * @param parallelism The number of runs made at once; by default
+     *                    the number of processors.
+     */
+    public void setParallelism(int parallelism)
+    {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("At least one run must be made at a time.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Return every point of the grid, varying the last parameter given
+     * to vary fastest.
+     * @return The parameters of each point.
+     */
+    public List<Parameters> getPoints()
+    {
+        List<Parameters> points = new ArrayList<>();
+        points.add(Parameters.DEFAULTS);
+        for(Map.Entry<String, double[]> axis : grid.entrySet()) {
+            List<Parameters> expanded = new ArrayList<>();
+            for(Parameters point : points) {
+                for(double value : axis.getValue()) {
+                    expanded.add(point.with(axis.getKey(), value));
+                }
+            }
+            points = expanded;
+        }
+        return points;
+    }
+
+    /**
+     * Make every run and write the results.
+     * @param output The CSV file to write, which is replaced if it exists.
+     * @return The result of every run, in grid order.
+     * @throws IOException If the file cannot be written.
+     */
+    public List<Result> run(Path output) throws IOException
+    {
+        List<Parameters> points = getPoints();
+        List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for(int point = 0; point < points.size(); point++) {
+                for(int replicate = 0; replicate < replicates; replicate++) {
+                    int p = point;
+                    int r = replicate;
+                    tasks.add(pool.submit(() -> runOne(p, r, points.get(p))));
+                }
+            }
+            List<Result> results = new ArrayList<>();
+            for(ForkJoinTask<Result> task : tasks) {
+                results.add(task.join());
+            }
+            write(output, results);
+            return results;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Make one run on the calling thread.
+     * @param point The number of the grid point.
+     * @param replicate The number of the replicate.
+     * @param parameters The parameters of the point.
+     * @return The result of the run.
+     */
+    private Result runOne(int point, int replicate, Parameters parameters)
+    {
+        long runSeed = seed + replicate;
+        Recorder recorder = new Recorder();
+        Simulator simulator = new Simulator(depth, width, runSeed, parameters, recorder);
+        simulator.simulate(steps);
+        return recorder.result(point, replicate, runSeed, parameters);
+    }
+
+    /**
+     * Write the results as CSV: the point, replicate and seed, the
+     * varied parameters, the number of steps made, then the step each
+     * species died out at (-1 if it survived) and its mean population.
+     * @param output The file to write.
+     * @param results The results of the runs.
+     * @throws IOException If the file cannot be written.
+     */
+    private void write(Path output, List<Result> results) throws IOException
+    {
+        Species[] species = Species.values();
+        try(BufferedWriter out = Files.newBufferedWriter(output)) {
+            StringBuilder header = new StringBuilder("point,replicate,seed");
+            for(String name : grid.keySet()) {
+                header.append(',').append(name);
+            }
+            header.append(",steps");
+            for(Species s : species) {
+                header.append(',').append(s.getName()).append("_extinction");
+            }
+            for(Species s : species) {
+                header.append(',').append(s.getName()).append("_mean");
+            }
+            out.write(header.toString());
+            out.newLine();
+            for(Result result : results) {
+                StringBuilder row = new StringBuilder();
+                row.append(result.point()).append(',').append(result.replicate())
+                   .append(',').append(result.seed());
+                for(String name : grid.keySet()) {
+                    row.append(',').append(result.parameters().get(name));
+                }
+                row.append(',').append(result.steps());
+                for(Species s : species) {
+                    row.append(',').append(result.extinctionStep(s));
+                }
+                for(Species s : species) {
+                    row.append(',').append(String.format(Locale.ROOT, "%.3f", result.meanPopulation(s)));
+                }
+                out.write(row.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * The outcome of one run.
+     * @param point The number of the grid point.
+     * @param replicate The number of the replicate at the point.
+     * @param seed The seed the run was made with.
+     * @param parameters The parameters the run was made with.
+     * @param steps The number of steps made.
+     * @param extinctionSteps The step each species died out at, by
+     *                        ordinal, or -1 if it survived.
+     * @param meanPopulations The mean population of each species over
+     *                        the run, counting the start, by ordinal.
+     */
+    public record Result(int point, int replicate, long seed, Parameters parameters, int steps,
+                         int[] extinctionSteps, double[] meanPopulations)
+    {
+        /**
+         * @param species A species.
+         * @return The step it died out at, or -1 if it survived.
+         */
+        public int extinctionStep(Species species)
+        {
+            return extinctionSteps[species.ordinal()];
+        }
+
+        /**
+         * @param species A species.
+         * @return Its mean population over the run.
+         */
+        public double meanPopulation(Species species)
+        {
+            return meanPopulations[species.ordinal()];
+        }
+    }
+
+    /**
+     * A statistics sink that keeps the totals a result is made from.
+     */
+    private static class Recorder implements StatsSink
+    {
+        private final Species[] species = Species.values();
+        // The step each species died out at, or -1.
+        private final int[] extinctionSteps = new int[species.length];
+        // The populations of each species summed over the steps recorded.
+        private final long[] totals = new long[species.length];
+        // The last step recorded and the number of steps recorded.
+        private int lastStep;
+        private int samples;
+
+        Recorder()
+        {
+            Arrays.fill(extinctionSteps, -1);
+        }
+
+        @Override
+        public void record(int step, Field field)
+        {
+            for(Species s : species) {
+                int count = field.getCount(s);
+                totals[s.ordinal()] += count;
+                if(count == 0 && extinctionSteps[s.ordinal()] < 0) {
+                    extinctionSteps[s.ordinal()] = step;
+                }
+            }
+            lastStep = step;
+            samples++;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        /**
+         * @param point The number of the grid point.
+         * @param replicate The number of the replicate at the point.
+         * @param seed The seed the run was made with.
+         * @param parameters The parameters the run was made with.
+         * @return The result of the run recorded.
+         */
+        Result result(int point, int replicate, long seed, Parameters parameters)
+        {
+            double[] means = new double[species.length];
+            for(int i = 0; i < means.length; i++) {
+                means[i] = (double) totals[i] / samples;
+            }
+            return new Result(point, replicate, seed, parameters, lastStep,
+                              extinctionSteps.clone(), means);
+        }
+    }
+
+    /**
+     * Run an ensemble from the command line.
+     * Options: --depth N, --width N, --steps N, --replicates N,
+     * --seed N, --threads N, --output FILE (ensemble.csv by default)
+     * and any number of --vary NAME=V1,V2,... to vary a parameter.
+     * @param args Command line arguments.
+     * @throws IOException If the results cannot be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int depth = 80;
+        int width = 120;
+        int steps = 700;
+        Path output = Path.of("ensemble.csv");
+        List<String> varied = new ArrayList<>();
+        Integer replicates = null;
+        Long seed = null;
+        Integer threads = null;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--depth" -> depth = Integer.parseInt(argument(args, ++i));
+                case "--width" -> width = Integer.parseInt(argument(args, ++i));
+                case "--steps" -> steps = Integer.parseInt(argument(args, ++i));
+                case "--replicates" -> replicates = Integer.parseInt(argument(args, ++i));
+                case "--seed" -> seed = Long.parseLong(argument(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(argument(args, ++i));
+                case "--output" -> output = Path.of(argument(args, ++i));
+                case "--vary" -> varied.add(argument(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        Ensemble ensemble = new Ensemble(depth, width, steps);
+        for(String axis : varied) {
+            int equals = axis.indexOf('=');
+            if(equals < 0) {
+                throw new IllegalArgumentException("Expected NAME=V1,V2,... but got " + axis);
+            }
+            String[] texts = axis.substring(equals + 1).split(",");
+            double[] values = new double[texts.length];
+            for(int v = 0; v < texts.length; v++) {
+                values[v] = Double.parseDouble(texts[v]);
+            }
+            ensemble.vary(axis.substring(0, equals), values);
+        }
+        if(replicates != null) {
+            ensemble.setReplicates(replicates);
+        }
+        if(seed != null) {
+            ensemble.setSeed(seed);
+        }
+        if(threads != null) {
+            ensemble.setParallelism(threads);
+        }
+        long start = System.nanoTime();
+        List<Result> results = ensemble.run(output);
+        System.out.printf("%d runs in %.1f s written to %s%n", results.size(),
+                          (System.nanoTime() - start) / 1e9, output);
+    }
+
+    /**
+     * Return the value following an option on the command line.
+     * @param args Command line arguments.
+     * @param i The position of the value.
+     * @return The value.
+     */
+    private static String argument(String[] args, int i)
+    {
+        if(i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+}
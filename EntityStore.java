@@ -0,0 +1,276 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The state of organisms kept in parallel primitive arrays, one entry
+ * per organism, rather than in one object per organism.
+ * An organism is known by an entity id, an index into the arrays that
+ * stays the same for the organism's whole life. The ids of organisms
+ * that have gone are reused by later ones.
+ *
+ * Entities need no Organism object. A Field holding an entity makes
+ * one from the store, with organismOf, only when something asks for
+ * it, e.g. a checkpoint or a replay. The store remembers the object of
+ * each entity for the current step, whether it was made on request or
+ * the entity was adopted from it, so that a death in the step reaches
+ * whoever holds it; forgetOrganisms lets them go at the end of the step.
+ *
+ * @author Aman H, Chris M
+ */
+public class EntityStore
+{
+    // Bits of the flags of an entity.
+    public static final byte ALIVE = 1;
+    public static final byte INFECTED = 2;
+    public static final byte MALE = 4;
+    // Marks entities placed in the next field during a step.
+    public static final byte PLACED = 8;
+    // Marks entities to be given up at the end of a step.
+    public static final byte LEAVING = 16;
+
+    // The number of entries allocated at first.
+    private static final int INITIAL_CAPACITY = 1024;
+    // Draws for new-born entities come from the stream selected for
+    // the parent.
+    private static final Random rand = Randomizer.getRandom();
+    // The species by ordinal, as kept in the store.
+    private static final Species[] SPECIES = Species.values();
+    private static final Organism.DeathCause[] CAUSES = Organism.DeathCause.values();
+
+    // The species of each entity, by Species ordinal.
+    byte[] species;
+    // The age of each entity, in steps.
+    short[] age;
+    // The food level of each entity.
+    short[] food;
+    // ALIVE, INFECTED, MALE, PLACED and LEAVING bits of each entity.
+    byte[] flags;
+    // How each dead entity died, by DeathCause ordinal.
+    byte[] deathCause;
+    // The cell each entity occupies.
+    int[] cell;
+    // The id of each entity's random stream.
+    long[] streamId;
+    // The Organism object of each entity in the current step, or null
+    // if it has none.
+    private Organism[] organisms;
+
+    // Ids no longer in use, available for new entities.
+    private int[] freeIds;
+    private int freeCount;
+    // One more than the highest id ever used.
+    private int highWater;
+
+    /**
+     * Create an empty store.
+     */
+    public EntityStore()
+    {
+        allocate(INITIAL_CAPACITY);
+        freeIds = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Resize the arrays, keeping their contents.
+     * @param capacity The new number of entries.
+     */
+    private void allocate(int capacity)
+    {
+        species = species == null ? new byte[capacity] : Arrays.copyOf(species, capacity);
+        age = age == null ? new short[capacity] : Arrays.copyOf(age, capacity);
+        food = food == null ? new short[capacity] : Arrays.copyOf(food, capacity);
+        flags = flags == null ? new byte[capacity] : Arrays.copyOf(flags, capacity);
+        deathCause = deathCause == null ? new byte[capacity] : Arrays.copyOf(deathCause, capacity);
+        cell = cell == null ? new int[capacity] : Arrays.copyOf(cell, capacity);
+        streamId = streamId == null ? new long[capacity] : Arrays.copyOf(streamId, capacity);
+        organisms = organisms == null ? new Organism[capacity] : Arrays.copyOf(organisms, capacity);
+    }
+
+    /**
+     * @return An unused entity id.
+     */
+    private int allocateId()
+    {
+        if(freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+        if(highWater == species.length) {
+            allocate(species.length * 2);
+        }
+        return highWater++;
+    }
+
+    /**
+     * Take an organism's state into the store.
+     * @param anOrganism The organism, which is remembered as the
+     *                   entity's object for the current step.
+     * @param index The cell the organism occupies.
+     * @return The entity id of the organism.
+     */
+    public int adopt(Organism anOrganism, int index)
+    {
+        int id = allocateId();
+        species[id] = (byte) anOrganism.getSpecies().ordinal();
+        cell[id] = index;
+        streamId[id] = anOrganism.getId();
+        organisms[id] = anOrganism;
+        byte bits = anOrganism.isAlive() ? ALIVE : 0;
+        if(anOrganism instanceof Animal animal) {
+            age[id] = (short) animal.getAge();
+            food[id] = (short) animal.getFoodValue();
+            if(animal.isInfected()) {
+                bits |= INFECTED;
+            }
+            if(animal.getGender() == Animal.Gender.MALE) {
+                bits |= MALE;
+            }
+        }
+        else {
+            age[id] = 0;
+            food[id] = 0;
+        }
+        flags[id] = bits;
+        return id;
+    }
+
+    /**
+     * Create a new-born entity, drawing its id, gender and food level
+     * from the current stream as the Organism and Animal constructors do.
+     * @param kind The entity's species.
+     * @param index The cell the entity occupies.
+     * @return The entity id.
+     */
+    public int create(Species kind, int index)
+    {
+        int id = allocateId();
+        species[id] = (byte) kind.ordinal();
+        cell[id] = index;
+        streamId[id] = rand.nextLong();
+        organisms[id] = null;
+        age[id] = 0;
+        food[id] = 0;
+        byte bits = ALIVE;
+        AnimalTraits traits = kind.getTraits();
+        if(traits != null) {
+            if(rand.nextBoolean()) {
+                bits |= MALE;
+            }
+            if(traits.startingFood() > 0) {
+                food[id] = (short) rand.nextInt(traits.startingFood());
+            }
+        }
+        flags[id] = bits;
+        return id;
+    }
+
+    /**
+     * Return the type of the cell holding an entity, as kept by Field.
+     * @param id The entity id.
+     * @return Its species code and flags.
+     */
+    byte typeOf(int id)
+    {
+        Species kind = SPECIES[species[id]];
+        int type = Field.codeOf(kind);
+        if((flags[id] & ALIVE) != 0) {
+            type |= Field.ALIVE;
+        }
+        if(kind.isAnimal()) {
+            if((flags[id] & INFECTED) != 0) {
+                type |= Field.INFECTED;
+            }
+            if((flags[id] & MALE) != 0) {
+                type |= Field.MALE;
+            }
+            if(age[id] >= kind.getTraits().breedingAge()) {
+                type |= Field.CAN_BREED;
+            }
+        }
+        return (byte) type;
+    }
+
+    /**
+     * Return the Organism object of an entity, making it if the entity
+     * has none, and bring it up to date with the entity's state.
+     * @param id The entity id.
+     * @param location The location of the entity's cell.
+     * @return The organism.
+     */
+    Organism organismOf(int id, Location location)
+    {
+        Species kind = SPECIES[species[id]];
+        Organism anOrganism = organisms[id];
+        if(anOrganism == null) {
+            if(kind.isAnimal()) {
+                Animal.Gender gender = (flags[id] & MALE) != 0 ? Animal.Gender.MALE : Animal.Gender.FEMALE;
+                anOrganism = new Animal(kind, streamId[id], gender, location);
+            }
+            else {
+                anOrganism = new Plant(kind, streamId[id], location);
+            }
+            organisms[id] = anOrganism;
+        }
+        anOrganism.setLocation(location);
+        if(anOrganism instanceof Animal animal) {
+            animal.setAge(age[id]);
+            animal.setFoodValue(food[id]);
+            animal.setInfected((flags[id] & INFECTED) != 0);
+        }
+        if((flags[id] & ALIVE) == 0) {
+            anOrganism.died(CAUSES[deathCause[id]]);
+        }
+        return anOrganism;
+    }
+
+    /**
+     * Kill an entity, and its Organism object if it has one.
+     * @param id The entity id.
+     * @param cause How the entity dies.
+     * @return true if the entity was alive.
+     */
+    public boolean kill(int id, Organism.DeathCause cause)
+    {
+        if((flags[id] & ALIVE) == 0) {
+            return false;
+        }
+        flags[id] &= ~ALIVE;
+        deathCause[id] = (byte) cause.ordinal();
+        if(organisms[id] != null) {
+            organisms[id].died(cause);
+        }
+        return true;
+    }
+
+    /**
+     * Give up an entity, making its id available again.
+     * @param id The entity id.
+     */
+    public void release(int id)
+    {
+        organisms[id] = null;
+        flags[id] = 0;
+        if(freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Let go of the entities' Organism objects, at the end of a step.
+     * Entities asked for later are given new ones.
+     */
+    public void forgetOrganisms()
+    {
+        Arrays.fill(organisms, 0, highWater, null);
+    }
+
+    /**
+     * Give up every entity.
+     */
+    public void clear()
+    {
+        Arrays.fill(organisms, 0, highWater, null);
+        freeCount = 0;
+        highWater = 0;
+    }
+}
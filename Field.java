@@ -1,8 +1,25 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal/object.
+ *
+ * Cells are numbered row by row and stored in chunks of CHUNK_SIZE
+ * consecutive cells. A chunk's storage is only allocated once something
+ * is placed in it and is given up again when the chunk has stayed empty
+ * for a generation, so a large, mostly empty ocean only costs memory
+ * where there is life. Each chunk's occupancy is counted, so that code
+ * walking the cells can skip empty chunks with isChunkEmpty, or visit
+ * just the occupied cells with nextOccupied.
+ *
+ * A cell holds either an Organism object or an entity: an organism
+ * whose state is kept in an EntityStore, as placed by ArrayStepEngine.
+ * An entity only gets an Organism object, made from its state in the
+ * store, when something asks for it through getOrganismAt or
+ * getOrganisms; the cell types and counts never need one.
  * 
  * @author David J. Barnes, Michael Kölling ,Aman H, Chris M
  * @version 7.0
@@ -11,23 +28,151 @@ public class Field
 {
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
-    
+    // Atomic access to the words of a chunk's occupancy bits, for
+    // placing and claiming cells from several threads.
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+    // The number of cells in a chunk, and its log.
+    public static final int CHUNK_SIZE = 4096;
+    private static final int CHUNK_SHIFT = 12;
+    // The most emptied chunks kept for reuse.
+    private static final int SPARE_CHUNKS = 256;
+
+    // The type of a cell, as returned by getType, is a byte holding the
+    // species code of its occupant in the low bits (0 for an empty cell)
+    // and flags describing the occupant when it was placed, kept up to
+    // date as it dies or is infected.
+    public static final int SPECIES_BITS = 0x0F;
+    public static final int ALIVE = 0x10;
+    public static final int INFECTED = 0x20;
+    public static final int MALE = 0x40;
+    public static final int CAN_BREED = 0x80;
+
     // The dimensions of the field.
     private final int depth, width;
-    // Animals mapped by location.
-    private final Map<Location, Organism> field = new HashMap<>();
-    // The animals.
+    // The number of cells, depth * width.
+    private final int cellCount;
+    // The storage of each chunk of cells, or null if it has none.
+    private final Chunk[] chunks;
+    // Emptied chunks' storage, kept for reuse.
+    private final ArrayDeque<Chunk> spareChunks = new ArrayDeque<>();
+    // The number of occupied cells in each chunk.
+    private final int[] occupied;
+    // The number of occupied cells in the field.
+    private int occupiedCount;
+    // A Fenwick tree of the number of free cells in each chunk, for
+    // randomFreeCell. Rebuilt when first needed after a clear or a
+    // concurrent update, and kept up to date from then on.
+    private final int[] freeTree;
+    private boolean freeTreeValid;
+    // The occupant of every filled cell, one entry per cell, or null
+    // for an entity that has no Organism object yet, and the cell of
+    // each entry.
     private final List<Organism> organisms = new ArrayList<>();
+    private int[] organismCells = new int[64];
+    // The store holding the entities placed in the field, if any, and
+    // the number of them that have no Organism object yet.
+    private EntityStore entityStore;
+    private int pendingOrganisms;
+    // The current generation. A chunk whose generation differs from
+    // this is empty, which lets clear() empty the whole field without
+    // touching every cell.
+    private int generation = 1;
+    // Whether placements are being made from several threads, in which
+    // case only the cells are written and the rest is rebuilt afterwards.
+    private boolean concurrent;
+    // Whether cells must be claimed before they are placed into.
+    private boolean claiming;
+    // The number of live organisms of each species, by species ordinal.
+    private final int[] liveCounts = new int[Species.values().length];
+    // The organisms of each species born into the field, and the
+    // animals infected, while it was built. Updated from any thread.
+    private final AtomicIntegerArray births = new AtomicIntegerArray(Species.values().length);
+    private final AtomicIntegerArray infections = new AtomicIntegerArray(Species.values().length);
+    // Neighbour index offsets for each kind of cell, selected by whether
+    // the cell has a row above/below and a column left/right of it.
+    private final int[][] neighbourOffsets = new int[16][];
 
     /**
      * Represent a field of the given dimensions.
+     * Cells are numbered with ints, so a field has at most
+     * Integer.MAX_VALUE cells.
      * @param depth The depth of the field.
      * @param width The width of the field.
+     * @throws IllegalArgumentException If the field has too many cells.
      */
     public Field(int depth, int width)
     {
         this.depth = depth;
         this.width = width;
+        try {
+            cellCount = Math.multiplyExact(depth, width);
+        }
+        catch(ArithmeticException e) {
+            throw new IllegalArgumentException("A " + depth + "x" + width + " field has more than "
+                                               + Integer.MAX_VALUE + " cells.");
+        }
+        int chunkCount = (int) (((long) cellCount + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        chunks = new Chunk[chunkCount];
+        occupied = new int[chunkCount];
+        freeTree = new int[chunkCount + 1];
+        buildNeighbourOffsets();
+    }
+
+    /**
+     * Precompute the neighbour offsets of interior, edge and corner cells.
+     * The offset of a neighbour is its index minus the cell's index.
+     */
+    private void buildNeighbourOffsets()
+    {
+        for(int kind = 0; kind < neighbourOffsets.length; kind++) {
+            int[] offsets = new int[8];
+            int count = 0;
+            for(int roffset = -1; roffset <= 1; roffset++) {
+                if((roffset < 0 && (kind & 1) == 0) || (roffset > 0 && (kind & 2) == 0)) {
+                    continue;
+                }
+                for(int coffset = -1; coffset <= 1; coffset++) {
+                    if((coffset < 0 && (kind & 4) == 0) || (coffset > 0 && (kind & 8) == 0)) {
+                        continue;
+                    }
+                    if(roffset != 0 || coffset != 0) {
+                        offsets[count++] = roffset * width + coffset;
+                    }
+                }
+            }
+            neighbourOffsets[kind] = Arrays.copyOf(offsets, count);
+        }
+    }
+
+    /**
+     * Return the neighbour offsets that apply to the given cell.
+     * @param index The cell index.
+     * @return The index offsets of the cell's neighbours.
+     */
+    private int[] neighbourOffsetsOf(int index)
+    {
+        int row = index / width;
+        int col = index - row * width;
+        int kind = (row > 0 ? 1 : 0) | (row < depth - 1 ? 2 : 0)
+                 | (col > 0 ? 4 : 0) | (col < width - 1 ? 8 : 0);
+        return neighbourOffsets[kind];
+    }
+
+    /**
+     * Position a cursor on the neighbours of the given cell.
+     * The cursor walks the neighbours from a random starting point
+     * and in a random direction. Several methods rely on neighbours
+     * being visited in a random order.
+     * @param index The cell whose neighbours are to be visited.
+     * @param cursor The cursor to position.
+     * @return The cursor, ready to walk the neighbours.
+     */
+    public NeighbourCursor neighbours(int index, NeighbourCursor cursor)
+    {
+        int[] offsets = neighbourOffsetsOf(index);
+        int start = offsets.length > 0 ? rand.nextInt(offsets.length) : 0;
+        cursor.reset(offsets, index, start, rand.nextBoolean());
+        return cursor;
     }
 
     /**
@@ -41,12 +186,580 @@ public class Field
     public void placeOrganism(Organism anOrganism, Location location)
     {
         assert location != null;
-        Organism other = field.get(location);
-        if(other != null) {
-            organisms.remove(other);
+        placeOrganism(anOrganism, indexOf(location));
+    }
+
+    /**
+     * Place an organism in the cell with the given index.
+     * If there is already an organism in the cell it will be lost.
+     * @param anOrganism The organism to be placed.
+     * @param index The cell index, as returned by indexOf.
+     */
+    public void placeOrganism(Organism anOrganism, int index)
+    {
+        byte type = typeOf(anOrganism);
+        Chunk chunk = occupy(index, anOrganism, 0, type);
+        int cell = index & (CHUNK_SIZE - 1);
+        chunk.cells[cell] = anOrganism;
+        if(chunk.entities != null) {
+            chunk.entities[cell] = 0;
+        }
+        chunk.types[cell] = type;
+        if(anOrganism.placedIn(this)) {
+            births.incrementAndGet(anOrganism.getSpecies().ordinal());
+        }
+    }
+
+    /**
+     * Place an entity in the cell with the given index, without making
+     * an Organism object for it. If there is already an organism in the
+     * cell it will be lost. Entities cannot be placed during a
+     * concurrent update.
+     * @param store The store holding the entity's state.
+     * @param id The entity id.
+     * @param index The cell index, as returned by indexOf.
+     * @param born Whether the entity has just been born, so counts as a birth.
+     */
+    void placeEntity(EntityStore store, int id, int index, boolean born)
+    {
+        byte type = store.typeOf(id);
+        Chunk chunk = occupy(index, null, id + 1, type);
+        int cell = index & (CHUNK_SIZE - 1);
+        if(chunk.entities == null) {
+            chunk.entities = new int[CHUNK_SIZE];
+        }
+        chunk.cells[cell] = null;
+        chunk.entities[cell] = id + 1;
+        chunk.types[cell] = type;
+        entityStore = store;
+        pendingOrganisms++;
+        if(born) {
+            births.incrementAndGet((type & SPECIES_BITS) - 1);
+        }
+    }
+
+    /**
+     * Take the organism object in a cell into a store in place, so that
+     * the cell holds the entity with the object as its Organism.
+     * @param store The store that has adopted the organism.
+     * @param id The organism's entity id.
+     * @param index The index of the organism's cell.
+     */
+    void adoptEntity(EntityStore store, int id, int index)
+    {
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        if(chunk.entities == null) {
+            chunk.entities = new int[CHUNK_SIZE];
+        }
+        chunk.entities[index & (CHUNK_SIZE - 1)] = id + 1;
+        entityStore = store;
+    }
+
+    /**
+     * @return The store of the entities placed in the field since it was
+     *         last cleared, or null if there are none.
+     */
+    EntityStore getEntityStore()
+    {
+        return entityStore;
+    }
+
+    /**
+     * Return the entity in a cell.
+     * @param index The cell index, as returned by indexOf.
+     * @return The entity id, or -1 if the cell is empty or holds an
+     *         organism object that is not an entity.
+     */
+    int getEntity(int index)
+    {
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        if(chunk == null || chunk.generation != generation || chunk.entities == null) {
+            return -1;
+        }
+        int cell = index & (CHUNK_SIZE - 1);
+        return (chunk.bits[cell >>> 6] & (1L << cell)) != 0 ? chunk.entities[cell] - 1 : -1;
+    }
+
+    /**
+     * Mark a cell as occupied, taking over the slot of any occupant
+     * being lost and keeping the counts up to date.
+     * @param index The cell index.
+     * @param anOrganism The organism object placed, or null for an entity.
+     * @param entity The entity id plus one, or 0 for an organism object.
+     * @param type The type of the new occupant.
+     * @return The chunk holding the cell.
+     */
+    private Chunk occupy(int index, Organism anOrganism, int entity, byte type)
+    {
+        Chunk chunk = activeChunk(index >>> CHUNK_SHIFT);
+        int cell = index & (CHUNK_SIZE - 1);
+        long bit = 1L << cell;
+        if(concurrent) {
+            BITS.getAndBitwiseOr(chunk.bits, cell >>> 6, bit);
+        }
+        else if((chunk.bits[cell >>> 6] & bit) != 0) {
+            // Take over the slot of the organism being lost.
+            int lostEntity = chunk.entities != null ? chunk.entities[cell] : 0;
+            if(lostEntity != entity || chunk.cells[cell] != anOrganism) {
+                if(lostEntity != 0 && chunk.cells[cell] == null) {
+                    pendingOrganisms--;
+                }
+                organisms.set(chunk.slots[cell], anOrganism);
+                uncount(chunk.types[cell]);
+                count(type);
+            }
+        }
+        else {
+            chunk.bits[cell >>> 6] |= bit;
+            chunk.slots[cell] = addOrganism(anOrganism, index);
+            fill(index >>> CHUNK_SHIFT);
+            count(type);
         }
-        field.put(location, anOrganism);
+        return chunk;
+    }
+
+    /**
+     * Add an occupant to the end of the organism list.
+     * @param anOrganism The occupant, or null for an entity.
+     * @param index The index of its cell.
+     * @return Its position in the list.
+     */
+    private int addOrganism(Organism anOrganism, int index)
+    {
+        int slot = organisms.size();
+        if(slot == organismCells.length) {
+            organismCells = Arrays.copyOf(organismCells, slot * 2);
+        }
+        organismCells[slot] = index;
         organisms.add(anOrganism);
+        return slot;
+    }
+
+    /**
+     * Add an organism that has entered the field to the live counts.
+     * @param type The organism's cell type.
+     */
+    private void count(int type)
+    {
+        if((type & ALIVE) != 0) {
+            liveCounts[(type & SPECIES_BITS) - 1]++;
+        }
+    }
+
+    /**
+     * Remove an organism that has left the field from the live counts.
+     * @param type The organism's cell type.
+     */
+    private void uncount(int type)
+    {
+        if((type & ALIVE) != 0) {
+            liveCounts[(type & SPECIES_BITS) - 1]--;
+        }
+    }
+
+    /**
+     * Take a death into account in the live counts and cell types.
+     * Called by an organism placed in this field when it dies. During a
+     * concurrent update the counts are left to endConcurrentUpdate to
+     * rebuild. So are the types when cells are claimed, since a dead
+     * organism's cell cannot be claimed again anyway; otherwise each cell
+     * is only touched by one thread at a time, and the dead organism's
+     * cell must be seen to be free for it to be taken over.
+     * @param anOrganism The organism that has died.
+     */
+    void organismDied(Organism anOrganism)
+    {
+        Location location = anOrganism.getLocation();
+        if(location == null || (concurrent && claiming)) {
+            return;
+        }
+        // Read the cell itself, which never makes an entity's organism.
+        int index = indexOf(location);
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        int cell = index & (CHUNK_SIZE - 1);
+        if(chunk != null && chunk.generation == generation
+           && (chunk.bits[cell >>> 6] & (1L << cell)) != 0 && chunk.cells[cell] == anOrganism) {
+            if(!concurrent) {
+                liveCounts[anOrganism.getSpecies().ordinal()]--;
+            }
+            markDead(index);
+        }
+    }
+
+    /**
+     * Take the death of the entity in a cell into account in the live
+     * counts and cell type, as organismDied does for organism objects.
+     * @param index The index of an occupied cell.
+     */
+    void entityDied(int index)
+    {
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        int cell = index & (CHUNK_SIZE - 1);
+        uncount(chunk.types[cell]);
+        chunk.types[cell] &= ~ALIVE;
+    }
+
+    /**
+     * Clear the alive flag of a cell's type.
+     * An organism only reports its death to the last field it was placed
+     * in, so one that has already moved on when it is eaten is marked
+     * dead in the field it was eaten from by the animal that ate it.
+     * @param index The index of an occupied cell.
+     */
+    void markDead(int index)
+    {
+        chunks[index >>> CHUNK_SHIFT].types[index & (CHUNK_SIZE - 1)] &= ~ALIVE;
+    }
+
+    /**
+     * Infect the animal in a cell: set the infected flag of the cell's
+     * type and, if the animal has an Animal object, the animal's own.
+     * An entity takes the flag from the type when it is next updated.
+     * @param index The index of a cell holding an animal.
+     */
+    void infect(int index)
+    {
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        int cell = index & (CHUNK_SIZE - 1);
+        chunk.types[cell] |= INFECTED;
+        if(chunk.cells[cell] instanceof Animal animal) {
+            animal.setInfected(true);
+        }
+    }
+
+    /**
+     * Return the type of a cell: the species code of its occupant and
+     * the ALIVE, INFECTED, MALE and CAN_BREED flags. Whether an animal
+     * can breed is taken when it is placed, i.e. at the start of the
+     * step for the current field.
+     * @param index The cell index, as returned by indexOf.
+     * @return The cell's type, or 0 if the cell is empty.
+     */
+    public int getType(int index)
+    {
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        if(chunk == null || chunk.generation != generation) {
+            return 0;
+        }
+        int cell = index & (CHUNK_SIZE - 1);
+        return (chunk.bits[cell >>> 6] & (1L << cell)) != 0 ? chunk.types[cell] & 0xFF : 0;
+    }
+
+    /**
+     * Return the type of a cell holding an organism.
+     * @param anOrganism The organism.
+     * @return Its species code and flags.
+     */
+    private static byte typeOf(Organism anOrganism)
+    {
+        int type = codeOf(anOrganism.getSpecies());
+        if(anOrganism.isAlive()) {
+            type |= ALIVE;
+        }
+        if(anOrganism instanceof Animal animal) {
+            if(animal.isInfected()) {
+                type |= INFECTED;
+            }
+            if(animal.getGender() == Animal.Gender.MALE) {
+                type |= MALE;
+            }
+            if(animal.canBreed()) {
+                type |= CAN_BREED;
+            }
+        }
+        return (byte) type;
+    }
+
+    /**
+     * @param species A species.
+     * @return The code of the species in cell types, from 1 up.
+     */
+    public static int codeOf(Species species)
+    {
+        return species.ordinal() + 1;
+    }
+
+    /**
+     * Return a mask of species, for testing cell types with isLive.
+     * @param species The species in the mask.
+     * @return A bit per species, set for those given.
+     */
+    public static int maskOf(Species... species)
+    {
+        int mask = 0;
+        for(Species s : species) {
+            mask |= 1 << codeOf(s);
+        }
+        return mask;
+    }
+
+    /**
+     * Return whether a cell type is a live member of one of the species
+     * in a mask.
+     * @param type A cell type, as returned by getType.
+     * @param mask A mask of species, as returned by maskOf.
+     * @return true if the occupant is alive and its species is in the mask.
+     */
+    public static boolean isLive(int type, int mask)
+    {
+        return (type & ALIVE) != 0 && ((mask >>> (type & SPECIES_BITS)) & 1) != 0;
+    }
+
+    /**
+     * Start placing organisms from several threads at once.
+     * Until endConcurrentUpdate is called, placements only write their
+     * own cell, so threads placing into distinct cells do not interfere.
+     * The organism list and free cells are out of date meanwhile.
+     * @param claimCells Whether threads may compete for the same cells.
+     *                   If so, a cell must be won with claimCell before
+     *                   an organism is placed into it.
+     */
+    public void beginConcurrentUpdate(boolean claimCells)
+    {
+        concurrent = true;
+        claiming = claimCells;
+    }
+
+    /**
+     * Claim an empty cell before placing an organism into it.
+     * While threads compete for cells, the claim atomically marks the
+     * cell as taken for this generation, so exactly one of several
+     * organisms trying to enter the cell succeeds. A cell that already
+     * holds an organism this generation cannot be claimed. Otherwise
+     * placements simply replace what is there, so every claim succeeds.
+     * @param index The cell index.
+     * @return true if the caller may place an organism into the cell.
+     */
+    public boolean claimCell(int index)
+    {
+        if(!claiming) {
+            return true;
+        }
+        Chunk chunk = activeChunk(index >>> CHUNK_SHIFT);
+        int cell = index & (CHUNK_SIZE - 1);
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        long bits = (long) BITS.getVolatile(chunk.bits, word);
+        while((bits & bit) == 0) {
+            long witness = (long) BITS.compareAndExchange(chunk.bits, word, bits, bits | bit);
+            if(witness == bits) {
+                return true;
+            }
+            bits = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Finish a concurrent update, rebuilding the organism list, the
+     * free-cell index, the live counts and the cell types from the
+     * cells. Takes time proportional to the size of the field.
+     */
+    public void endConcurrentUpdate()
+    {
+        concurrent = false;
+        claiming = false;
+        organisms.clear();
+        pendingOrganisms = 0;
+        Arrays.fill(liveCounts, 0);
+        occupiedCount = 0;
+        freeTreeValid = false;
+        for(int c = 0; c < chunks.length; c++) {
+            occupied[c] = 0;
+            Chunk chunk = chunks[c];
+            if(chunk == null || chunk.generation != generation) {
+                continue;
+            }
+            for(int word = 0; word < chunk.bits.length; word++) {
+                long bits = chunk.bits[word];
+                occupied[c] += Long.bitCount(bits);
+                while(bits != 0) {
+                    int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    chunk.slots[cell] = addOrganism(chunk.cells[cell], (c << CHUNK_SHIFT) + cell);
+                    chunk.types[cell] = typeOf(chunk.cells[cell]);
+                    count(chunk.types[cell]);
+                }
+            }
+            occupiedCount += occupied[c];
+        }
+    }
+
+    /**
+     * Return the storage of a chunk for the current generation,
+     * allocating or emptying it if need be.
+     * @param c The chunk number.
+     * @return The chunk's storage.
+     */
+    private Chunk activeChunk(int c)
+    {
+        Chunk chunk = chunks[c];
+        if(chunk != null && chunk.generation == generation) {
+            return chunk;
+        }
+        if(concurrent) {
+            synchronized(this) {
+                return activate(c);
+            }
+        }
+        return activate(c);
+    }
+
+    /**
+     * Make a chunk ready to take organisms in the current generation.
+     * @param c The chunk number.
+     * @return The chunk's storage.
+     */
+    private Chunk activate(int c)
+    {
+        Chunk chunk = chunks[c];
+        if(chunk == null) {
+            chunk = spareChunks.isEmpty() ? new Chunk() : spareChunks.pop();
+            chunks[c] = chunk;
+        }
+        if(chunk.generation != generation) {
+            Arrays.fill(chunk.bits, 0);
+            chunk.generation = generation;
+        }
+        return chunk;
+    }
+
+    /**
+     * Count a newly filled cell in its chunk's occupancy.
+     * @param c The chunk number.
+     */
+    private void fill(int c)
+    {
+        occupied[c]++;
+        occupiedCount++;
+        if(freeTreeValid) {
+            for(int node = c + 1; node < freeTree.length; node += node & -node) {
+                freeTree[node]--;
+            }
+        }
+    }
+
+    /**
+     * Return the number of cells in a chunk.
+     * @param c The chunk number.
+     * @return CHUNK_SIZE, or fewer for the last chunk.
+     */
+    private int chunkSize(int c)
+    {
+        return Math.min(CHUNK_SIZE, cellCount - (c << CHUNK_SHIFT));
+    }
+
+    /**
+     * Build the tree of free cells per chunk from the occupancy counts.
+     */
+    private void buildFreeTree()
+    {
+        for(int c = 0; c < chunks.length; c++) {
+            freeTree[c + 1] = chunkSize(c) - occupied[c];
+        }
+        for(int node = 1; node < freeTree.length; node++) {
+            int parent = node + (node & -node);
+            if(parent < freeTree.length) {
+                freeTree[parent] += freeTree[node];
+            }
+        }
+        freeTreeValid = true;
+    }
+
+    /**
+     * Return a randomly chosen empty cell, each equally likely.
+     * The chunk is found through the tree of free cells per chunk, and
+     * the cell within it from its occupancy bits, so this takes time
+     * logarithmic in the number of chunks however full the field is.
+     * @return The index of an empty cell, or -1 if the field is full.
+     */
+    public int randomFreeCell()
+    {
+        int freeCount = getFreeCount();
+        if(freeCount == 0) {
+            return -1;
+        }
+        if(!freeTreeValid) {
+            buildFreeTree();
+        }
+        // Find the chunk holding the rank'th free cell.
+        int rank = rand.nextInt(freeCount);
+        int c = 0;
+        for(int step = Integer.highestOneBit(chunks.length); step > 0; step >>>= 1) {
+            if(c + step < freeTree.length && freeTree[c + step] <= rank) {
+                c += step;
+                rank -= freeTree[c];
+            }
+        }
+        Chunk chunk = chunks[c];
+        if(chunk == null || chunk.generation != generation) {
+            return (c << CHUNK_SHIFT) + rank;
+        }
+        // Find the rank'th clear bit of the chunk.
+        for(int word = 0; ; word++) {
+            long free = ~chunk.bits[word];
+            int count = Long.bitCount(free);
+            if(rank < count) {
+                for(int i = 0; i < rank; i++) {
+                    free &= free - 1;
+                }
+                return (c << CHUNK_SHIFT) + (word << 6) + Long.numberOfTrailingZeros(free);
+            }
+            rank -= count;
+        }
+    }
+
+    /**
+     * Return the number of live organisms of a species in the field.
+     * The counts are kept up to date as organisms are placed, replaced
+     * and die, so this takes constant time.
+     * @param species The species to count.
+     * @return The number of live members of the species.
+     */
+    public int getCount(Species species)
+    {
+        return liveCounts[species.ordinal()];
+    }
+
+    /**
+     * Return the number of organisms of a species born into the field
+     * since it was last cleared, including plants that have grown.
+     * @param species The species.
+     * @return The number of births.
+     */
+    public int getBirths(Species species)
+    {
+        return births.get(species.ordinal());
+    }
+
+    /**
+     * Record that an animal caught the infection while this field was built.
+     * Safe to call from several threads at once.
+     * @param species The species of the animal.
+     */
+    public void recordInfection(Species species)
+    {
+        infections.incrementAndGet(species.ordinal());
+    }
+
+    /**
+     * Return the number of animals of a species infected while this
+     * field was built.
+     * @param species The species.
+     * @return The number of infections.
+     */
+    public int getInfections(Species species)
+    {
+        return infections.get(species.ordinal());
+    }
+
+    /**
+     * Return the number of empty cells.
+     * @return The number of cells with no organism in them.
+     */
+    public int getFreeCount()
+    {
+        return cellCount - occupiedCount;
     }
     
     /**
@@ -56,7 +769,138 @@ public class Field
      */
     public Organism getOrganismAt(Location location)
     {
-        return field.get(location);
+        return getOrganismAt(indexOf(location));
+    }
+
+    /**
+     * Return the organism in the cell with the given index, if any.
+     * @param index The cell index, as returned by indexOf.
+     * @return The organism in the cell, or null if there is none.
+     */
+    public Organism getOrganismAt(int index)
+    {
+        Chunk chunk = chunks[index >>> CHUNK_SHIFT];
+        if(chunk == null || chunk.generation != generation) {
+            return null;
+        }
+        int cell = index & (CHUNK_SIZE - 1);
+        if((chunk.bits[cell >>> 6] & (1L << cell)) == 0) {
+            return null;
+        }
+        Organism anOrganism = chunk.cells[cell];
+        return anOrganism != null ? anOrganism : createOrganism(chunk, cell, index);
+    }
+
+    /**
+     * Make the Organism object of the entity in a cell, from its state
+     * in the store.
+     * @param chunk The chunk holding the cell.
+     * @param cell The cell's number within the chunk.
+     * @param index The cell index.
+     * @return The organism.
+     */
+    private Organism createOrganism(Chunk chunk, int cell, int index)
+    {
+        Organism anOrganism = entityStore.organismOf(chunk.entities[cell] - 1, locationOf(index));
+        chunk.cells[cell] = anOrganism;
+        organisms.set(chunk.slots[cell], anOrganism);
+        pendingOrganisms--;
+        anOrganism.placedIn(this);
+        return anOrganism;
+    }
+
+    /**
+     * Make sure every occupant of the field has an Organism object,
+     * making those of entities that have none. Must be called before
+     * the organisms are read from several threads at once.
+     */
+    public void createOrganisms()
+    {
+        for(int index = nextOccupied(0); pendingOrganisms > 0 && index >= 0;
+            index = nextOccupied(index + 1)) {
+            getOrganismAt(index);
+        }
+    }
+
+    /**
+     * Return the cell index of a location in this field.
+     * Cells are stored row by row, so the index is row * width + col.
+     * @param location A location within the field.
+     * @return The index of the location's cell.
+     */
+    public int indexOf(Location location)
+    {
+        return location.row() * width + location.col();
+    }
+
+    /**
+     * Return the location of the cell with the given index.
+     * @param index The cell index, as returned by indexOf.
+     * @return The location of the cell.
+     */
+    public Location locationOf(int index)
+    {
+        return new Location(index / width, index % width);
+    }
+
+    /**
+     * Return the number of cells in the field.
+     * @return depth * width.
+     */
+    public int getCellCount()
+    {
+        return cellCount;
+    }
+
+    /**
+     * Return the number of chunks the cells are stored in. Chunk c
+     * holds the cells from c * CHUNK_SIZE up to the next chunk.
+     * @return The number of chunks.
+     */
+    public int getChunkCount()
+    {
+        return chunks.length;
+    }
+
+    /**
+     * Return whether a chunk is empty, so that it can be skipped.
+     * Not up to date during a concurrent update.
+     * @param c The chunk number.
+     * @return true if no cell of the chunk holds an organism.
+     */
+    public boolean isChunkEmpty(int c)
+    {
+        return occupied[c] == 0;
+    }
+
+    /**
+     * Return the first occupied cell at or after a given one. Empty
+     * chunks are skipped and the rest walked through their occupancy
+     * bits, so the occupied cells can be visited in order in time
+     * proportional to their number. Not up to date during a concurrent
+     * update.
+     * @param from The cell index to start from.
+     * @return The index of the occupied cell, or -1 if there is none.
+     */
+    public int nextOccupied(int from)
+    {
+        int cell = from & (CHUNK_SIZE - 1);
+        for(int c = from >>> CHUNK_SHIFT; c < chunks.length; c++, cell = 0) {
+            Chunk chunk = chunks[c];
+            if(occupied[c] == 0 || chunk == null || chunk.generation != generation) {
+                continue;
+            }
+            for(int word = cell >>> 6; word < chunk.bits.length; word++) {
+                long bits = chunk.bits[word];
+                if(word == cell >>> 6) {
+                    bits &= -1L << cell;
+                }
+                if(bits != 0) {
+                    return (c << CHUNK_SHIFT) + (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+        return -1;
     }
 
     /**
@@ -67,14 +911,11 @@ public class Field
     public List<Location> getFreeAdjacentLocations(Location location)
     {
         List<Location> free = new LinkedList<>();
-        List<Location> adjacent = getAdjacentLocations(location);
-        for(Location next : adjacent) {
-            Organism anAnimal = field.get(next);
-            if(anAnimal == null) {
-                free.add(next);
-            }
-            else if(!anAnimal.isAlive()) {
-                free.add(next);
+        NeighbourCursor cursor = neighbours(indexOf(location), new NeighbourCursor());
+        while(cursor.hasNext()) {
+            int next = cursor.next();
+            if((getType(next) & ALIVE) == 0) {
+                free.add(locationOf(next));
             }
         }
         return free;
@@ -84,6 +925,8 @@ public class Field
      * Return a shuffled list of locations adjacent to the given one.
      * The list will not include the location itself.
      * All locations will lie within the grid.
+     * Hot paths should walk a NeighbourCursor instead, which does
+     * not allocate.
      * @param location The location from which to generate adjacencies.
      * @return A list of locations adjacent to that given.
      */
@@ -92,19 +935,9 @@ public class Field
         // The list of locations to be returned.
         List<Location> locations = new ArrayList<>();
         if(location != null) {
-            int row = location.row();
-            int col = location.col();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
+            NeighbourCursor cursor = neighbours(indexOf(location), new NeighbourCursor());
+            while(cursor.hasNext()) {
+                locations.add(locationOf(cursor.next()));
             }
             
             // Shuffle the list. Several other methods rely on the list
@@ -114,137 +947,115 @@ public class Field
         return locations;
     }
 
-/**
- * Print out the number of all species in the field.
- */
-public void fieldStats()
-{
-    int numSharks = 0, numBarracudas = 0, numGoldfish = 0;
-    int numTuna = 0, numParrotfish = 0;
-
-    int numAlgae = 0, numSeaweed = 0;
-    
-    for(Organism anOrganism : field.values()) {
-        switch (anOrganism) {
-            case Shark shark -> {
-                if(shark.isAlive()) {
-                    numSharks++;
-                }
-            }
-            case Barracuda barracuda -> {
-                if(barracuda.isAlive()) {
-                    numBarracudas++;
-                }
-            }
-            case Tuna tuna -> {
-                if(tuna.isAlive()) {
-                    numTuna++;
-                }
-            }
-            case Goldfish goldfish -> {
-                if(goldfish.isAlive()) {
-                    numGoldfish++;
-                }
-            }
-            case Parrotfish parrotfish -> {
-                if(parrotfish.isAlive()) {
-                    numParrotfish++;
-                }
-            }
-            case Algae algae -> {
-                if(algae.isAlive()) {
-                    numAlgae++;
-                }
-            }
-            case Seaweed seaweed -> {
-                if(seaweed.isAlive()) {
-                    numSeaweed++;
-                }
-            }
-            default -> {
-                
+    /**
+     * Print out the number of all species in the field.
+     */
+    public void fieldStats()
+    {
+        StringBuilder line = new StringBuilder();
+        for(Species species : Species.values()) {
+            if(line.length() > 0) {
+                line.append(' ');
             }
+            line.append(species.getName()).append(": ").append(getCount(species));
         }
+        System.out.println(line);
     }
-    System.out.println("Goldfish: " + numGoldfish +
-                     " Barracudas: " + numBarracudas +
-                     " Sharks: " + numSharks +
-                     " Tuna: " + numTuna +
-                     " Parrotfish: " + numParrotfish +
-                     " Algae: " + numAlgae +
-                     " Seaweed: " + numSeaweed);
-}
- 
+
      /**
       * Empty the field.
+      * Only the organism list and chunk counts are cleared; the cells
+      * are emptied by moving to a new generation, so a field can be
+      * reused as the next state every step at a cost that does not
+      * depend on its number of cells. Chunks that were empty in the
+      * generation now ending give up their storage.
       */
      public void clear()
      {
-         field.clear();
+         for(int c = 0; c < chunks.length; c++) {
+             if(chunks[c] != null && occupied[c] == 0) {
+                 if(spareChunks.size() < SPARE_CHUNKS) {
+                     spareChunks.push(chunks[c]);
+                 }
+                 chunks[c] = null;
+             }
+         }
+         generation++;
+         if(generation == 0) {
+             // The generations have wrapped around; start again from scratch.
+             for(Chunk chunk : chunks) {
+                 if(chunk != null) {
+                     chunk.generation = 0;
+                 }
+             }
+             for(Chunk chunk : spareChunks) {
+                 chunk.generation = 0;
+             }
+             generation = 1;
+         }
          organisms.clear();
+         entityStore = null;
+         pendingOrganisms = 0;
+         Arrays.fill(liveCounts, 0);
+         for(int i = 0; i < liveCounts.length; i++) {
+             births.set(i, 0);
+             infections.set(i, 0);
+         }
+         Arrays.fill(occupied, 0);
+         occupiedCount = 0;
+         freeTreeValid = false;
      }
  
     /**
- * Return whether there is at least one of each species in the field.
- * @return true if there is at least one of each species in the field.
- */
-public boolean isViable()
-{
-    boolean goldfishFound = false;
-    boolean barracudaFound = false;
-    boolean sharkFound = false;
-    boolean tunaFound = false;
-    boolean parrotfishFound = false;
-    
-    Iterator<Organism> it = organisms.iterator();
-    while(it.hasNext() &&
-          !(goldfishFound && barracudaFound && sharkFound && 
-            tunaFound && parrotfishFound)) {
-        Organism check = it.next();
-        if (check instanceof Animal anAnimal){
-            switch (anAnimal) {
-                case Goldfish goldfish -> {
-                    if(goldfish.isAlive()) {
-                        goldfishFound = true;
-                    }
-                }
-                case Barracuda barracuda -> {
-                    if(barracuda.isAlive()) {
-                        barracudaFound = true;
-                    }
-                }
-                case Shark shark -> {
-                    if(shark.isAlive()) {
-                        sharkFound = true;
-                    }
-                }
-                case Tuna tuna -> {
-                    if(tuna.isAlive()) {
-                        tunaFound = true;
-                    }
-                }
-                case Parrotfish parrotfish -> {
-                    if(parrotfish.isAlive()) {
-                        parrotfishFound = true;
-                    }
-                }
-                default -> {
-                }
+     * Return whether there is at least one of each species of animal
+     * in the field.
+     * @return true if there is at least one of each species in the field.
+     */
+    public boolean isViable()
+    {
+        for(Species species : Species.values()) {
+            if(species.isAnimal() && getCount(species) == 0) {
+                return false;
             }
         }
+        return true;
     }
-    return goldfishFound && barracudaFound && sharkFound && 
-           tunaFound && parrotfishFound;
-}
-    
+
     /**
      * Get the list of animals.
+     * The list holds one entry per occupied cell. An organism that
+     * replaces another takes over its position, so the order only
+     * changes through new placements in previously empty cells.
+     * Entities are given Organism objects first; see createOrganisms.
      */
     public List<Organism> getOrganisms()
     {
+        if(pendingOrganisms > 0) {
+            createOrganisms();
+        }
         return organisms;
     }
 
+    /**
+     * Return the cell of an entry of the organism list, without making
+     * Organism objects for entities.
+     * @param i The entry's position in the list returned by getOrganisms.
+     * @return The index of the cell the entry occupies.
+     */
+    public int getOrganismCell(int i)
+    {
+        return organismCells[i];
+    }
+
+    /**
+     * @return The number of entries in the organism list, i.e. the
+     *         number of occupied cells.
+     */
+    public int getOrganismCount()
+    {
+        return organisms.size();
+    }
+
     /**
      * Return the depth of the field.
      * @return The depth of the field.
@@ -265,18 +1076,37 @@ public boolean isViable()
 
     /**
      * Get a shuffled list of the free locations.
-     * @return A list of free locations.
+     * Use randomFreeCell to pick a few free cells without building
+     * the whole list.
+     * @return A list of the locations with no organism in them.
      */
     public List <Location> getFreeLocations()
     {
-        List<Location> free = new LinkedList<>();
-        for (Location loc : field.keySet()) {
-            Organism anOrganism = field.get(loc);
-            if (anOrganism == null) {
-                free.add(loc);
+        List<Location> free = new ArrayList<>(getFreeCount());
+        for(int c = 0; c < chunks.length; c++) {
+            int start = c << CHUNK_SHIFT;
+            int size = chunkSize(c);
+            Chunk chunk = chunks[c];
+            if(occupied[c] == size) {
+                continue;
+            }
+            if(occupied[c] == 0 || chunk == null || chunk.generation != generation) {
+                // Every cell of the chunk is free.
+                for(int cell = 0; cell < size; cell++) {
+                    free.add(locationOf(start + cell));
+                }
+                continue;
             }
-            else if (!anOrganism.isAlive()) {
-                free.add(loc);
+            // Walk the clear bits of the chunk's occupancy.
+            for(int word = 0; word << 6 < size; word++) {
+                long bits = ~chunk.bits[word];
+                while(bits != 0) {
+                    int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if(cell < size) {
+                        free.add(locationOf(start + cell));
+                    }
+                }
             }
         }
         // Shuffle the list. Several other methods rely on the list
@@ -284,4 +1114,26 @@ public boolean isViable()
         Collections.shuffle(free, rand);
         return free;
     }
+
+    /**
+     * The storage of one chunk of cells.
+     */
+    private static class Chunk
+    {
+        // The organism in each cell, or null for an entity that has no
+        // Organism object yet; only meaningful where a bit is set.
+        final Organism[] cells = new Organism[CHUNK_SIZE];
+        // The entity id plus one in each cell, or 0 for an organism
+        // object; null until the chunk first holds an entity.
+        int[] entities;
+        // The position in organisms of each cell's occupant.
+        final int[] slots = new int[CHUNK_SIZE];
+        // The type of each cell's occupant; see getType.
+        final byte[] types = new byte[CHUNK_SIZE];
+        // A bit per cell, set if the cell is occupied.
+        final long[] bits = new long[CHUNK_SIZE / 64];
+        // The generation the bits belong to. Set after the bits are
+        // cleared, so other threads that see it see clear bits.
+        volatile int generation;
+    }
 }
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * A compact copy of what a view shows of the simulation after a step:
+ * one byte per cell saying what occupies it, plus the step, the time
+ * of day, the weather and the population.
+ *
+ * A snapshot is filled in by the simulation thread and then handed to
+ * the display, which only reads it. It must not be changed again until
+ * the display has finished with it, after which it may be reused.
+ *
+ * @author Aman H, Chris M
+ */
+public class FieldSnapshot
+{
+    // The code of an empty cell.
+    public static final byte EMPTY = 0;
+
+    // The dimensions of the field.
+    private final int depth, width;
+    // The code of each cell: EMPTY, or 1 + species ordinal * 2, plus
+    // one more for infected animals.
+    private final byte[] cells;
+    // The step, time of day and weather the snapshot was taken at.
+    private int step;
+    private int timeOfDay;
+    private Weather.Condition weather;
+    // A description of the population.
+    private String population;
+
+    /**
+     * Create an empty snapshot of a field of the given size.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public FieldSnapshot(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        cells = new byte[Math.multiplyExact(depth, width)];
+    }
+
+    /**
+     * Return the code for what occupies a cell. The code is made from
+     * the cell's type, so the field need not make organism objects.
+     * @param type The cell's type, as returned by Field.getType.
+     * @return EMPTY, or 1 + species ordinal * 2, plus one if infected.
+     */
+    public static byte codeOf(int type)
+    {
+        int code = type & Field.SPECIES_BITS;
+        if(code == 0) {
+            return EMPTY;
+        }
+        int shade = (type & Field.INFECTED) != 0 ? 1 : 0;
+        return (byte) (1 + (code - 1) * 2 + shade);
+    }
+
+    /**
+     * Copy the state of a field into the snapshot.
+     * @param step The step that has just been made.
+     * @param field The field.
+     * @param timeOfDay The hour of the day.
+     * @param weather The weather.
+     * @param population A description of the population.
+     */
+    public void capture(int step, Field field, int timeOfDay, Weather.Condition weather,
+                        String population)
+    {
+        for(int c = 0; c < field.getChunkCount(); c++) {
+            int from = c * Field.CHUNK_SIZE;
+            int to = Math.min(from + Field.CHUNK_SIZE, cells.length);
+            if(field.isChunkEmpty(c)) {
+                Arrays.fill(cells, from, to, EMPTY);
+            }
+            else {
+                for(int index = from; index < to; index++) {
+                    cells[index] = codeOf(field.getType(index));
+                }
+            }
+        }
+        this.step = step;
+        this.timeOfDay = timeOfDay;
+        this.weather = weather;
+        this.population = population;
+    }
+
+    /**
+     * @param field A field.
+     * @return true if the snapshot is the right size for the field.
+     */
+    public boolean fits(Field field)
+    {
+        return field.getDepth() == depth && field.getWidth() == width;
+    }
+
+    /**
+     * Return the cell codes, one per cell in the order of the field's
+     * cell indices. The array must not be changed.
+     * @return The code of every cell.
+     */
+    public byte[] getCells()
+    {
+        return cells;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return The step the snapshot was taken after.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The hour of the day.
+     */
+    public int getTimeOfDay()
+    {
+        return timeOfDay;
+    }
+
+    /**
+     * @return The weather.
+     */
+    public Weather.Condition getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return A description of the population.
+     */
+    public String getPopulation()
+    {
+        return population;
+    }
+}
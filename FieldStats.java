@@ -1,30 +1,19 @@
-import java.util.HashMap;
-import java.util.Map;
-
 /**
- * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * This class provides some statistical data on the state of a field.
+ * The field keeps a live count of every species as organisms are
+ * placed in it and die, so the statistics are read rather than
+ * counted, and take no longer to produce however large the field is.
  * 
  * @author David J. Barnes and Michael Kölling
  * @version 7.0
  */
 public class FieldStats
 {
-    // Counters for each type of entity (goldfish, shark, etc.) in the simulation.
-    private final Map<Class<?>, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
-
     /**
      * Construct a FieldStats object.
      */
     public FieldStats()
     {
-        // Set up a collection for counters for each type of organism that
-        // we might find
-        counters = new HashMap<>();
-        countsValid = true;
     }
 
     /**
@@ -34,55 +23,14 @@ public class FieldStats
     public String getPopulationDetails(Field field)
     {
         StringBuilder details = new StringBuilder();
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class<?> key : counters.keySet()) {
-            Counter info = counters.get(key);
-            details.append(info.getName())
+        for(Species species : Species.values()) {
+            details.append(species.getName())
                    .append(": ")
-                   .append(info.getCount())
+                   .append(field.getCount(species))
                    .append(' ');
         }
         return details.toString();
     }
-    
-    /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
-     */
-    public void reset()
-    {
-        countsValid = false;
-        for(Class<?> key : counters.keySet()) {
-            Counter count = counters.get(key);
-            count.reset();
-        }
-    }
-
-    /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
-     */
-    public void incrementCount(Class<?> organismClass)
-    {
-        Counter count = counters.get(organismClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(organismClass.getName());
-            counters.put(organismClass, count);
-        }
-        count.increment();
-    }
-
-    /**
-     * Indicate that an animal count has been completed.
-     */
-    public void countFinished()
-    {
-        countsValid = true;
-    }
 
     /**
      * Determine whether the simulation is still viable.
@@ -93,25 +41,4 @@ public class FieldStats
     {
         return field.isViable();
     }
-    
-    /**
-     * Generate counts of the number of organisms.
-     * These are not kept up to date as organisms
-     * are placed in the field, but only when a request
-     * is made for the information.
-     * @param field The field to generate the stats for.
-     */
-    private void generateCounts(Field field)
-    {
-        reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Organism organism = field.getOrganismAt(new Location(row, col));
-                if(organism != null) {
-                    incrementCount(organism.getClass());
-                }
-            }
-        }
-        countsValid = true;
-    }
 }
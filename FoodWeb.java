@@ -0,0 +1,195 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Which species eat which, and how much food a meal of each is worth.
+ * The food web is a matrix over the species: for every eater, a mask of
+ * the species it eats in the form made by Field.maskOf, and the food
+ * level it is given by a meal of each. Deciding whether a neighbour is
+ * food is then a single test of its cell type against the eater's mask.
+ *
+ * A food web is read from a text file with one meal per line:
+ *   EATER FOOD VALUE
+ * e.g. "SHARK TUNA 25", naming species as in species.txt. Blank
+ * lines and everything after a '#' are ignored. The default food web is
+ * read from foodweb.txt, which is looked for on the class path, i.e. in
+ * the project directory, the first time it is asked for. If the file is
+ * not there, a built-in copy of the same meals is used instead.
+ *
+ * Food webs are immutable, so one can be shared by any number of
+ * simulations.
+ *
+ * @author Aman H, Chris M
+ */
+public class FoodWeb
+{
+    // The file the default food web is read from.
+    private static final String DEFAULT_FILE = "foodweb.txt";
+    // The meals of the default food web when the file is missing.
+    private static final String BUILT_IN =
+        "SHARK       TUNA     25\n" +
+        "BARRACUDA   TUNA     25\n" +
+        "GOLDFISH    ALGAE    10\n" +
+        "GOLDFISH    SEAWEED  13\n" +
+        "PARROTFISH  ALGAE    10\n" +
+        "PARROTFISH  SEAWEED  13\n";
+    // The default food web, once it has been loaded.
+    private static FoodWeb defaultWeb;
+
+    // The species each eats, by the eater's ordinal.
+    private final int[] foodMasks;
+    // The food level given by a meal, by the eater's then the food's ordinal.
+    private final int[][] foodValues;
+
+    /**
+     * @param foodMasks The species each eats, by ordinal.
+     * @param foodValues The value of each meal, by ordinals.
+     */
+    private FoodWeb(int[] foodMasks, int[][] foodValues)
+    {
+        this.foodMasks = foodMasks;
+        this.foodValues = foodValues;
+    }
+
+    /**
+     * Read a food web from a file.
+     * @param path The file.
+     * @return The food web.
+     * @throws IOException If the file cannot be read or is not a food web.
+     */
+    public static FoodWeb load(Path path) throws IOException
+    {
+        try(BufferedReader in = Files.newBufferedReader(path)) {
+            return read(in, path.toString());
+        }
+    }
+
+    /**
+     * Return the food web the simulation uses unless told otherwise.
+     * It is read from the class path when first asked for.
+     * @return The default food web.
+     * @throws UncheckedIOException If foodweb.txt cannot be read or is
+     *                              not a food web.
+     */
+    public static synchronized FoodWeb getDefault()
+    {
+        if(defaultWeb == null) {
+            defaultWeb = loadDefault();
+        }
+        return defaultWeb;
+    }
+
+    /**
+     * Read the default food web from the class path, or from the
+     * built-in table if the file is not there.
+     * @return The food web.
+     */
+    private static FoodWeb loadDefault()
+    {
+        InputStream stream = FoodWeb.class.getResourceAsStream("/" + DEFAULT_FILE);
+        try(BufferedReader in = stream != null
+                ? new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))
+                : new BufferedReader(new StringReader(BUILT_IN))) {
+            return read(in, stream != null ? DEFAULT_FILE : "the built-in food web");
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException("Cannot read the default food web: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read a food web, one meal per line.
+     * @param in The lines to read.
+     * @param source The name of what is read, for error messages.
+     * @return The food web.
+     * @throws IOException If the lines cannot be read or do not describe
+     *                     a food web.
+     */
+    private static FoodWeb read(BufferedReader in, String source) throws IOException
+    {
+        Species[] species = Species.values();
+        int[] masks = new int[species.length];
+        int[][] values = new int[species.length][species.length];
+        String line;
+        int number = 0;
+        while((line = in.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            if(comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.strip();
+            if(line.isEmpty()) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            if(words.length != 3) {
+                throw new IOException(source + ":" + number + ": expected EATER FOOD VALUE.");
+            }
+            Species eater = speciesOf(words[0], source, number);
+            Species food = speciesOf(words[1], source, number);
+            if(!eater.isAnimal()) {
+                throw new IOException(source + ":" + number + ": " + eater + " is not an animal.");
+            }
+            int value;
+            try {
+                value = Integer.parseInt(words[2]);
+            }
+            catch(NumberFormatException e) {
+                value = -1;
+            }
+            if(value <= 0 || value > Short.MAX_VALUE) {
+                throw new IOException(source + ":" + number + ": bad food value " + words[2] + ".");
+            }
+            masks[eater.ordinal()] |= Field.maskOf(food);
+            values[eater.ordinal()][food.ordinal()] = value;
+        }
+        return new FoodWeb(masks, values);
+    }
+
+    /**
+     * Find a species named in a food web.
+     * @param name The species' name, as in species.txt.
+     * @param source The name of what is read, for error messages.
+     * @param number The line number, for error messages.
+     * @return The species.
+     * @throws IOException If there is no such species.
+     */
+    private static Species speciesOf(String name, String source, int number) throws IOException
+    {
+        try {
+            return Species.valueOf(name);
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(source + ":" + number + ": unknown species " + name + ".");
+        }
+    }
+
+    /**
+     * @param eater A species.
+     * @return The species it eats, as a mask of cell types made the way
+     *         Field.maskOf makes them; 0 if it eats nothing.
+     */
+    public int getFoodMask(Species eater)
+    {
+        return foodMasks[eater.ordinal()];
+    }
+
+    /**
+     * @param eater A species.
+     * @param food A species the eater eats.
+     * @return The food level the eater is given by a meal of the food,
+     *         or 0 if it does not eat it.
+     */
+    public int getFoodValue(Species eater, Species food)
+    {
+        return foodValues[eater.ordinal()][food.ordinal()];
+    }
+}
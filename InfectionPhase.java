@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the infection as a phase of its own at the start of each step,
+ * before the step engine moves anything. Animals catch the infection
+ * spontaneously with the infection probability, and every infected
+ * animal infects each uninfected neighbouring animal with the spread
+ * probability. The infection never wears off.
+ *
+ * Infected animals are rare, so the phase keeps a list of them from
+ * step to step instead of looking at every animal. Spontaneous cases
+ * are found by skipping through the organism list by geometrically
+ * distributed gaps, which picks each entry with the infection
+ * probability using one random number per case rather than one per
+ * animal; entries that are not uninfected live animals are passed
+ * over. Spread is only looked for around the infected animals, in
+ * the order of their cells. So the cost of a step grows with the number
+ * infected, not with the population. A field holding entities of an
+ * EntityStore has no Animal objects to keep, so the ids of its
+ * infected entities are kept instead, and found in the store's cells.
+ *
+ * Numbers are drawn from the simulation's infection stream, so the
+ * outcome is the same whichever engine makes the step.
+ *
+ * @author Aman H, Chris M
+ */
+public class InfectionPhase
+{
+    private static final Random rand = Randomizer.getRandom();
+    // The species by code, less one, as held in cell types.
+    private static final Species[] SPECIES = Species.values();
+    // The species that can catch the infection, as a mask of cell types.
+    private static final int ANIMALS = Field.maskOf(
+        Arrays.stream(Species.values()).filter(Species::isAnimal).toArray(Species[]::new));
+
+    // The live infected animals of the current field.
+    private List<Animal> infected = new ArrayList<>();
+    // The list being built for the next step.
+    private List<Animal> kept = new ArrayList<>();
+    // The ids of the live infected entities of the current field, when
+    // it holds the entities of a store.
+    private int[] entities = new int[16];
+    private int entityCount;
+    // The cells of the infected animals in this step: those infected
+    // before it in cell order, then those infected in it.
+    private int[] cells = new int[16];
+    private int cellCount;
+    // The field the list was last brought up to date for, the store of
+    // its entities if any, and the step after which it was, used to
+    // tell whether the list still matches.
+    private Field lastField;
+    private EntityStore lastStore;
+    private int lastStep;
+    // The cursor used to visit the neighbours of an infected animal.
+    private final NeighbourCursor cursor = new NeighbourCursor();
+
+    /**
+     * Forget the infected animals, e.g. because the field has been
+     * refilled, so that they are looked for again in the next step.
+     */
+    public void reset()
+    {
+        lastField = null;
+    }
+
+    /**
+     * Infect the animals of the current field for a step.
+     * The stream to draw from must already be selected.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The cleared field the next state is built
+     *                       in, which records the infections.
+     */
+    public void step(SimulationContext context, Field currentField, Field nextFieldState)
+    {
+        Parameters parameters = context.getParameters();
+        EntityStore store = currentField.getEntityStore();
+        cellCount = 0;
+        if(currentField != lastField || context.getStep() != lastStep + 1 || store != lastStore) {
+            // A reset, restore or change of engine has replaced the
+            // organisms; start again.
+            findInfected(currentField);
+        }
+        else if(store != null) {
+            dropGoneEntities(currentField, store);
+        }
+        else {
+            dropGone(currentField);
+            for(Animal animal : infected) {
+                addCell(currentField.indexOf(animal.getLocation()));
+            }
+        }
+        // Spread in the order of the cells, which does not depend on
+        // the history of the list, so a restored simulation draws the
+        // same numbers for the same animals.
+        Arrays.sort(cells, 0, cellCount);
+        infectSpontaneously(currentField, nextFieldState, parameters.getInfectionProbability());
+        spread(currentField, nextFieldState, parameters.getSpreadProbability());
+        // Keep the animals by what stays the same as they move: their
+        // objects, or the ids of entities, whose cells the store tracks.
+        boolean carried = true;
+        if(store != null) {
+            entityCount = 0;
+            for(int i = 0; i < cellCount; i++) {
+                int id = currentField.getEntity(cells[i]);
+                if(id < 0) {
+                    // An animal object in a field of entities; look again.
+                    carried = false;
+                    break;
+                }
+                if(entityCount == entities.length) {
+                    entities = Arrays.copyOf(entities, entityCount * 2);
+                }
+                entities[entityCount++] = id;
+            }
+        }
+        else {
+            infected.clear();
+            for(int i = 0; i < cellCount; i++) {
+                infected.add((Animal) currentField.getOrganismAt(cells[i]));
+            }
+        }
+        lastField = carried ? nextFieldState : null;
+        lastStore = store;
+        lastStep = context.getStep();
+    }
+
+    /**
+     * Find the infected animals from the cell types of the whole field,
+     * in cell order. Only needed when the list cannot be carried over.
+     * @param field The field.
+     */
+    private void findInfected(Field field)
+    {
+        for(int index = field.nextOccupied(0); index >= 0; index = field.nextOccupied(index + 1)) {
+            int type = field.getType(index);
+            if(Field.isLive(type, ANIMALS) && (type & Field.INFECTED) != 0) {
+                addCell(index);
+            }
+        }
+    }
+
+    /**
+     * Find the cells of the infected entities of the last step, taking
+     * off those that died or left the field.
+     * @param field The current field.
+     * @param store The store holding the field's entities.
+     */
+    private void dropGoneEntities(Field field, EntityStore store)
+    {
+        for(int i = 0; i < entityCount; i++) {
+            int id = entities[i];
+            int cell = store.cell[id];
+            if(field.getEntity(cell) == id && Field.isLive(field.getType(cell), ANIMALS)) {
+                addCell(cell);
+            }
+        }
+    }
+
+    /**
+     * Take the animals that died or left the field in the last step off
+     * the list.
+     * @param field The current field.
+     */
+    private void dropGone(Field field)
+    {
+        kept.clear();
+        for(Animal animal : infected) {
+            Location location = animal.getLocation();
+            if(animal.isAlive() && location != null && field.getOrganismAt(location) == animal) {
+                kept.add(animal);
+            }
+        }
+        List<Animal> swap = infected;
+        infected = kept;
+        kept = swap;
+    }
+
+    /**
+     * @param index The cell of an infected animal, to add to the list.
+     */
+    private void addCell(int index)
+    {
+        if(cellCount == cells.length) {
+            cells = Arrays.copyOf(cells, cellCount * 2);
+        }
+        cells[cellCount++] = index;
+    }
+
+    /**
+     * Give each uninfected live animal the chance to catch the infection.
+     * @param field The current field.
+     * @param nextFieldState The field being built, which records infections.
+     * @param probability The probability of an animal catching it.
+     */
+    private void infectSpontaneously(Field field, Field nextFieldState, double probability)
+    {
+        if(probability <= 0) {
+            return;
+        }
+        int entries = field.getOrganismCount();
+        double logMiss = Math.log1p(-probability);
+        for(long i = gap(logMiss); i < entries; i += 1 + gap(logMiss)) {
+            int cell = field.getOrganismCell((int) i);
+            if(Field.isLive(field.getType(cell), ANIMALS)) {
+                infect(field, cell, nextFieldState);
+            }
+        }
+    }
+
+    /**
+     * Draw the number of entries passed over before the next one chosen,
+     * when each is chosen independently.
+     * @param logMiss The log of the probability of an entry not being chosen.
+     * @return The number passed over, which may be very large.
+     */
+    private static long gap(double logMiss)
+    {
+        if(logMiss == Double.NEGATIVE_INFINITY) {
+            // Every entry is chosen.
+            return 0;
+        }
+        return (long) Math.min(Math.log(1.0 - rand.nextDouble()) / logMiss, Long.MAX_VALUE / 2);
+    }
+
+    /**
+     * Let every animal that was infected before this phase, or caught
+     * the infection spontaneously in it, infect its neighbours.
+     * @param field The current field.
+     * @param nextFieldState The field being built, which records infections.
+     * @param probability The probability of infecting each neighbour.
+     */
+    private void spread(Field field, Field nextFieldState, double probability)
+    {
+        if(probability <= 0) {
+            return;
+        }
+        // Animals infected by their neighbours only spread it next step.
+        int spreaders = cellCount;
+        for(int i = 0; i < spreaders; i++) {
+            NeighbourCursor it = field.neighbours(cells[i], cursor);
+            while(it.hasNext()) {
+                int cell = it.next();
+                int type = field.getType(cell);
+                if(Field.isLive(type, ANIMALS) && (type & Field.INFECTED) == 0
+                   && rand.nextDouble() <= probability) {
+                    infect(field, cell, nextFieldState);
+                }
+            }
+        }
+    }
+
+    /**
+     * Infect the animal in a cell, unless it already is, and record it.
+     * @param field The current field.
+     * @param index The index of the animal's cell.
+     * @param nextFieldState The field being built, which records infections.
+     */
+    private void infect(Field field, int index, Field nextFieldState)
+    {
+        int type = field.getType(index);
+        if((type & Field.INFECTED) == 0) {
+            field.infect(index);
+            nextFieldState.recordInfection(SPECIES[(type & Field.SPECIES_BITS) - 1]);
+            addCell(index);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * A reusable cursor over the cells adjacent to one cell of a field.
+ * A cursor is positioned by Field.neighbours and then walks the
+ * neighbouring cell indices starting from a random rotation, so the
+ * order is still randomised without building or shuffling a list.
+ * Cursors hold no per-query state on the heap and can be reused for
+ * any number of queries.
+ *
+ * @author Aman H, Chris M
+ */
+public class NeighbourCursor
+{
+    // The index offsets of the neighbours of the current cell.
+    private int[] offsets;
+    // The index of the cell whose neighbours are being visited.
+    private int origin;
+    // The offset position the walk started from.
+    private int start;
+    // The step between successive offset positions (1 or count - 1).
+    private int stride;
+    // How many neighbours have been visited so far.
+    private int visited;
+
+    /**
+     * Create an unpositioned cursor.
+     */
+    public NeighbourCursor()
+    {
+        offsets = new int[0];
+    }
+
+    /**
+     * Position the cursor on a cell.
+     * @param offsets The index offsets of the cell's neighbours.
+     * @param origin The index of the cell.
+     * @param start The offset position to start from.
+     * @param reverse Whether to walk the offsets backwards.
+     */
+    void reset(int[] offsets, int origin, int start, boolean reverse)
+    {
+        this.offsets = offsets;
+        this.origin = origin;
+        this.start = start;
+        this.stride = reverse ? offsets.length - 1 : 1;
+        this.visited = 0;
+    }
+
+    /**
+     * @return The number of neighbours of the current cell.
+     */
+    public int count()
+    {
+        return offsets.length;
+    }
+
+    /**
+     * @return true if there are neighbours left to visit.
+     */
+    public boolean hasNext()
+    {
+        return visited < offsets.length;
+    }
+
+    /**
+     * Return the index of the next neighbouring cell.
+     * Must only be called while hasNext is true.
+     * @return The cell index of the next neighbour.
+     */
+    public int next()
+    {
+        int position = (start + visited * stride) % offsets.length;
+        visited++;
+        return origin + offsets[position];
+    }
+}
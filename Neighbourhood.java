@@ -0,0 +1,313 @@
+/**
+ * A snapshot of the cells around one animal, taken once per step, and
+ * the Actor through which Behaviour runs the animal's turn.
+ * The snapshot records the type of each neighbouring cell of the
+ * current field (species, alive, gender and breeding eligibility, as
+ * kept by the field in one byte per cell) and whether the cell is still
+ * free in the next field, so classifying the neighbours reads no
+ * organisms. All of an animal's per-step decisions read from the same
+ * snapshot, so the neighbourhood is only probed once.
+ *
+ * Neighbours are recorded in a random order, which the behaviours
+ * rely on. A Neighbourhood is reused from animal to animal.
+ *
+ * @author Aman H, Chris M
+ */
+public class Neighbourhood implements Actor
+{
+    // Set in a neighbour's type if the cell is still free in the next
+    // field; above the bits used by Field.
+    private static final int FREE = 0x100;
+
+    // The most neighbours a cell can have.
+    private static final int MAX_NEIGHBOURS = 8;
+    // The species, by code less one.
+    private static final Species[] SPECIES = Species.values();
+
+    // Cell indices of the neighbours, in visiting order.
+    private final int[] cells = new int[MAX_NEIGHBOURS];
+    // The cell type of each neighbour in the current field, with FREE.
+    private final int[] types = new int[MAX_NEIGHBOURS];
+    // A bit per species with a live member among the neighbours, as
+    // made by Field.maskOf.
+    private int liveMask;
+    // The cursor used to visit the neighbours.
+    private final NeighbourCursor cursor = new NeighbourCursor();
+    // The number of neighbours recorded.
+    private int count;
+    // The number of neighbours still free in the next field.
+    private int freeCount;
+    // The field currently occupied.
+    private Field currentField;
+    // The field being built for the next step.
+    private Field nextFieldState;
+    // The animal whose neighbourhood this is.
+    private Animal animal;
+
+    /**
+     * Record the neighbourhood of an animal.
+     * @param currentField The field currently occupied.
+     * @param nextFieldState The field being built for the next step.
+     * @param animal The animal whose neighbours are recorded.
+     * @return This neighbourhood.
+     */
+    public Neighbourhood scan(Field currentField, Field nextFieldState, Animal animal)
+    {
+        this.currentField = currentField;
+        this.nextFieldState = nextFieldState;
+        this.animal = animal;
+        count = 0;
+        freeCount = 0;
+        liveMask = 0;
+        NeighbourCursor it = currentField.neighbours(currentField.indexOf(animal.getLocation()), cursor);
+        while(it.hasNext()) {
+            int cell = it.next();
+            int type = currentField.getType(cell);
+            if((type & Field.ALIVE) != 0) {
+                liveMask |= 1 << (type & Field.SPECIES_BITS);
+            }
+            if((nextFieldState.getType(cell) & Field.ALIVE) == 0) {
+                type |= FREE;
+                freeCount++;
+            }
+            cells[count] = cell;
+            types[count] = type;
+            count++;
+        }
+        return this;
+    }
+
+    @Override
+    public Species getSpecies()
+    {
+        return animal.getSpecies();
+    }
+
+    @Override
+    public boolean isAlive()
+    {
+        return animal.isAlive();
+    }
+
+    @Override
+    public int getAge()
+    {
+        return animal.getAge();
+    }
+
+    @Override
+    public void setAge(int age)
+    {
+        animal.setAge(age);
+    }
+
+    @Override
+    public int getFoodValue()
+    {
+        return animal.getFoodValue();
+    }
+
+    @Override
+    public void setFoodValue(int foodValue)
+    {
+        animal.setFoodValue(foodValue);
+    }
+
+    @Override
+    public void die(Organism.DeathCause cause)
+    {
+        animal.setDead(cause);
+    }
+
+    /**
+     * @return The number of neighbouring cells.
+     */
+    @Override
+    public int count()
+    {
+        return count;
+    }
+
+    /**
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @return The cell index of the neighbour.
+     */
+    @Override
+    public int cellAt(int i)
+    {
+        return cells[i];
+    }
+
+    /**
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @return The species occupying the neighbour, or null if empty.
+     */
+    @Override
+    public Species speciesAt(int i)
+    {
+        int code = types[i] & Field.SPECIES_BITS;
+        return code != 0 ? SPECIES[code - 1] : null;
+    }
+
+    /**
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @return true if the neighbour holds a live organism.
+     */
+    public boolean isAlive(int i)
+    {
+        return (types[i] & Field.ALIVE) != 0;
+    }
+
+    /**
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @return The gender of the animal in the neighbour.
+     */
+    public Animal.Gender genderAt(int i)
+    {
+        return (types[i] & Field.MALE) != 0 ? Animal.Gender.MALE : Animal.Gender.FEMALE;
+    }
+
+    /**
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @return true if the animal in the neighbour is old enough to breed.
+     */
+    public boolean canBreed(int i)
+    {
+        return (types[i] & Field.CAN_BREED) != 0;
+    }
+
+    /**
+     * Return whether the neighbour holds a live organism of a species.
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @param target The species looked for.
+     * @return true if a live member of target is in the neighbour.
+     */
+    public boolean isLive(int i, Species target)
+    {
+        return (types[i] & (Field.SPECIES_BITS | Field.ALIVE)) == (Field.codeOf(target) | Field.ALIVE);
+    }
+
+    /**
+     * Return whether the neighbour holds a live member of one of several
+     * species.
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @param mask The species looked for, as made by Field.maskOf.
+     * @return true if a live member of one of them is in the neighbour.
+     */
+    @Override
+    public boolean isLive(int i, int mask)
+    {
+        return Field.isLive(types[i], mask);
+    }
+
+    /**
+     * Return whether any neighbour held a live member of one of several
+     * species when the snapshot was taken, e.g. whether there is
+     * anything to eat. Kills since then are not taken into account.
+     * @param mask The species looked for, as made by Field.maskOf.
+     * @return true if a live member of one of them is adjacent.
+     */
+    @Override
+    public boolean hasLive(int mask)
+    {
+        return (liveMask & mask) != 0;
+    }
+
+    /**
+     * Find a neighbouring partner for breeding: a live animal of the
+     * same species, old enough to breed and of the opposite gender.
+     * @param target The species of the partner.
+     * @param gender The gender of the animal looking for a partner.
+     * @return The neighbour number of a partner, or -1 if there is none.
+     */
+    public int findMate(Species target, Animal.Gender gender)
+    {
+        int wanted = Field.codeOf(target) | Field.ALIVE | Field.CAN_BREED
+                     | (gender == Animal.Gender.MALE ? 0 : Field.MALE);
+        int tested = Field.SPECIES_BITS | Field.ALIVE | Field.CAN_BREED | Field.MALE;
+        for(int i = 0; i < count; i++) {
+            if((types[i] & tested) == wanted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean hasMate()
+    {
+        return findMate(animal.getSpecies(), animal.getGender()) >= 0;
+    }
+
+    /**
+     * Kill the organism in a neighbouring cell, e.g. when it is eaten.
+     * @param i The neighbour number, from 0 to count() - 1.
+     * @return true if it was killed, false if something else got to it first.
+     */
+    @Override
+    public boolean kill(int i)
+    {
+        types[i] &= ~Field.ALIVE;
+        if(!currentField.getOrganismAt(cells[i]).kill()) {
+            return false;
+        }
+        currentField.markDead(cells[i]);
+        return true;
+    }
+
+    /**
+     * @return true if a neighbour is still free in the next field.
+     */
+    @Override
+    public boolean hasFree()
+    {
+        return freeCount > 0;
+    }
+
+    /**
+     * Claim the next neighbour that is free in the next field.
+     * A claimed cell is no longer reported as free. If another thread
+     * has claimed a cell since the snapshot was taken, the following
+     * free neighbour is tried instead.
+     * @return The cell index of the claimed neighbour, or -1 if none is free.
+     */
+    @Override
+    public int takeFree()
+    {
+        for(int i = 0; i < count && freeCount > 0; i++) {
+            if((types[i] & FREE) != 0) {
+                types[i] &= ~FREE;
+                freeCount--;
+                if(nextFieldState.claimCell(cells[i])) {
+                    return cells[i];
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getCell()
+    {
+        return nextFieldState.indexOf(animal.getLocation());
+    }
+
+    @Override
+    public boolean claim(int index)
+    {
+        return nextFieldState.claimCell(index);
+    }
+
+    @Override
+    public void moveTo(int index)
+    {
+        animal.moveTo(nextFieldState, index);
+    }
+
+    @Override
+    public void bear(int index)
+    {
+        Organism young = animal.getSpecies().create(nextFieldState.locationOf(index));
+        nextFieldState.placeOrganism(young, index);
+    }
+}
@@ -1,3 +1,5 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Random;
 
 /**
@@ -9,15 +11,40 @@ import java.util.Random;
  */
 public abstract class Organism
 {
-    // Allows for each organsism to access a single instance of the simulator
-    protected static Simulator simulator;
-    // A shared random number generator to control breeding.
+    /**
+     * The ways an organism can die.
+     */
+    public enum DeathCause {
+        AGE, STARVATION, OVERCROWDING, EATEN
+    }
+
+    // A shared random number generator to control breeding. Draws come
+    // from the stream selected for the organism currently being updated.
     protected static final Random rand = Randomizer.getRandom();
+    // Atomic access to the alive flag, so that concurrent predators
+    // cannot both eat the same prey.
+    private static final VarHandle ALIVE;
+    static {
+        try {
+            ALIVE = MethodHandles.lookup().findVarHandle(Organism.class, "alive", boolean.class);
+        }
+        catch(ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
+    // Identifies the organism's random stream. Drawn when the organism
+    // is created, so it is the same in every run with the same seed.
+    private long id;
     // Whether the animal is alive or not.
     private boolean alive;
     // The animal's position.
     private Location location;
+    // How the organism died, or null while it is alive.
+    private DeathCause deathCause;
+    // The field the organism was last placed in, which counts it while
+    // it is alive and so must be told when it dies.
+    private Field field;
 
     /**
      * Constructor for objects of class Animal.
@@ -25,34 +52,70 @@ public abstract class Organism
      */
     public Organism(Location location)
     {
+        this.id = rand.nextLong();
         this.alive = true;
         this.location = location;
     }
 
     /**
-     * Set the simulator instance to be used by all organisms.
-     * @param sim Simultor instance to be set.
+     * Create an organism with a known id, drawing no random numbers,
+     * e.g. to stand for an entity of an EntityStore.
+     * @param id The organism's id.
+     * @param location The organism's location.
      */
+    Organism(long id, Location location)
+    {
+        this.id = id;
+        this.alive = true;
+        this.location = location;
+    }
 
-     public static void setSimulator(Simulator sim) {
-        simulator = sim;
+    /**
+     * Return the organism's id, which selects its random stream.
+     * @return The organism's id.
+     */
+    public long getId()
+    {
+        return id;
     }
 
     /**
-     * Get the static simulator instance.
-     * @return The simulator instance.
+     * Give the organism the id it had when a checkpoint was taken.
+     * @param id The organism's id.
      */
-    protected static Simulator getSimulator()
+    void restoreId(long id)
     {
-        return simulator;
+        this.id = id;
     }
-    
+
     /**
      * Act.
+     * @param context The simulation and step the organism acts in.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The new state being built.
+     */
+    abstract public void act(SimulationContext context, Field currentField, Field nextFieldState);
+
+    /**
+     * Advance this organism by one step of the simulation.
+     * Step engines call this for every organism in the current field.
+     * @param context The simulation and step the organism acts in.
      * @param currentField The current state of the field.
      * @param nextFieldState The new state being built.
+     * @param neighbourhood A snapshot the organism may reuse to record
+     *                      its surroundings.
+     */
+    public void update(SimulationContext context, Field currentField, Field nextFieldState,
+                       Neighbourhood neighbourhood)
+    {
+        act(context, currentField, nextFieldState);
+    }
+
+    /**
+     * Return the species of this organism.
+     * @return The organism's species.
      */
-    abstract public void act(Field currentField, Field nextFieldState);
+    abstract public Species getSpecies();
 
     /**
      * Check whether the organism is alive or not.
@@ -65,13 +128,82 @@ public abstract class Organism
 
     /**
      * Indicate that the organism is no longer alive.
+     * @param cause How the organism died.
      */
-    protected void setDead()
+    protected void setDead(DeathCause cause)
     {
-        alive = false;
+        if(alive) {
+            alive = false;
+            deathCause = cause;
+            reportDeath();
+        }
         location = null;
     }
     
+    /**
+     * Kill this organism on behalf of another, e.g. when it is eaten.
+     * Unlike setDead the location is kept, since the organism may be
+     * acting on another thread at the same time.
+     * @return true if this call killed the organism, false if it was
+     *         already dead.
+     */
+    protected boolean kill()
+    {
+        if(ALIVE.compareAndSet(this, true, false)) {
+            deathCause = DeathCause.EATEN;
+            reportDeath();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record a death that the organism's field already knows about,
+     * e.g. that of the entity the organism stands for. Unlike setDead
+     * the field is not told and the location is kept.
+     * @param cause How the organism died.
+     */
+    void died(DeathCause cause)
+    {
+        if(alive) {
+            alive = false;
+            deathCause = cause;
+        }
+    }
+
+    /**
+     * @return How the organism died, or null if it is alive.
+     */
+    public DeathCause getDeathCause()
+    {
+        return deathCause;
+    }
+
+    /**
+     * Tell the field the organism was last placed in that it has died,
+     * so that the field's population counts stay up to date.
+     */
+    private void reportDeath()
+    {
+        if(field != null) {
+            field.organismDied(this);
+        }
+    }
+
+    /**
+     * Record the field the organism has been placed in.
+     * Called by the field itself.
+     * @param field The field.
+     * @return true if this is the first time the organism has been
+     *         placed in any field, i.e. it has just been born.
+     */
+    boolean placedIn(Field field)
+    {
+        boolean first = this.field == null;
+        this.field = field;
+        return first;
+    }
+    
     /**
      * Return the organisms's location.
      * @return The organism's location.
@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tunable probabilities of a simulation: how likely each species
+ * is to be created when the field is populated, how likely each animal
+ * is to breed, and how likely animals are to catch and spread the
+ * infection. A simulation holds its own parameters, so simulations
+ * running side by side, e.g. in an ensemble, can each have different
+ * ones.
+ *
+ * Parameters are immutable; with gives a copy with one of them changed.
+ * They are named after the species they apply to, e.g.
+ * SHARK_CREATION_PROBABILITY or TUNA_BREEDING_PROBABILITY, whose
+ * defaults are given in species.txt, or are INFECTION_PROBABILITY and
+ * SPREAD_PROBABILITY.
+ *
+ * @author Aman H, Chris M
+ */
+public class Parameters
+{
+    private static final String CREATION = "_CREATION_PROBABILITY";
+    private static final String BREEDING = "_BREEDING_PROBABILITY";
+    private static final String INFECTION = "INFECTION_PROBABILITY";
+    private static final String SPREAD = "SPREAD_PROBABILITY";
+
+    /**
+     * The probabilities the simulation uses unless told otherwise.
+     */
+    public static final Parameters DEFAULTS = new Parameters(
+        defaultCreation(),
+        defaultBreeding(),
+        Animal.INFECTION_PROBABILITY,
+        Animal.SPREAD_PROBABILITY);
+
+    // Indexed by species ordinal. Plants do not breed, so theirs are 0.
+    private final double[] creation;
+    private final double[] breeding;
+    private final double infection;
+    private final double spread;
+
+    /**
+     * @return The creation probability of each species, as species.txt
+     *         gives it, by ordinal.
+     */
+    private static double[] defaultCreation()
+    {
+        Species[] species = Species.values();
+        double[] creation = new double[species.length];
+        for(Species s : species) {
+            creation[s.ordinal()] = s.getCreationProbability();
+        }
+        return creation;
+    }
+
+    /**
+     * @return The breeding probability in each species' traits, by
+     *         ordinal, and 0 for plants.
+     */
+    private static double[] defaultBreeding()
+    {
+        Species[] species = Species.values();
+        double[] breeding = new double[species.length];
+        for(Species s : species) {
+            if(s.isAnimal()) {
+                breeding[s.ordinal()] = s.getTraits().breedingProbability();
+            }
+        }
+        return breeding;
+    }
+
+    /**
+     * @param creation The creation probability of each species.
+     * @param breeding The breeding probability of each species.
+     * @param infection The probability of an animal catching the infection.
+     * @param spread The probability of the infection spreading to a neighbour.
+     */
+    private Parameters(double[] creation, double[] breeding, double infection, double spread)
+    {
+        this.creation = creation;
+        this.breeding = breeding;
+        this.infection = infection;
+        this.spread = spread;
+    }
+
+    /**
+     * Return a copy of these parameters with one of them changed.
+     * @param name The parameter's name, e.g. SHARK_CREATION_PROBABILITY.
+     * @param value Its new value, a probability.
+     * @return The changed parameters.
+     * @throws IllegalArgumentException If there is no such parameter or
+     *                                  the value is not a probability.
+     */
+    public Parameters with(String name, double value)
+    {
+        if(!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1, not " + value + ".");
+        }
+        double[] newCreation = creation;
+        double[] newBreeding = breeding;
+        double newInfection = infection;
+        double newSpread = spread;
+        if(name.equals(INFECTION)) {
+            newInfection = value;
+        }
+        else if(name.equals(SPREAD)) {
+            newSpread = value;
+        }
+        else if(name.endsWith(CREATION)) {
+            newCreation = creation.clone();
+            newCreation[speciesOf(name, CREATION).ordinal()] = value;
+        }
+        else if(name.endsWith(BREEDING) && speciesOf(name, BREEDING).isAnimal()) {
+            newBreeding = breeding.clone();
+            newBreeding[speciesOf(name, BREEDING).ordinal()] = value;
+        }
+        else {
+            throw new IllegalArgumentException("Unknown parameter: " + name);
+        }
+        return new Parameters(newCreation, newBreeding, newInfection, newSpread);
+    }
+
+    /**
+     * Find the species a parameter name starts with.
+     * @param name The parameter's name.
+     * @param suffix The rest of the name after the species.
+     * @return The species.
+     * @throws IllegalArgumentException If there is no such species.
+     */
+    private static Species speciesOf(String name, String suffix)
+    {
+        try {
+            return Species.valueOf(name.substring(0, name.length() - suffix.length()));
+        }
+        catch(IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown parameter: " + name);
+        }
+    }
+
+    /**
+     * Return the value of a parameter.
+     * @param name The parameter's name, e.g. SHARK_CREATION_PROBABILITY.
+     * @return Its value.
+     * @throws IllegalArgumentException If there is no such parameter.
+     */
+    public double get(String name)
+    {
+        if(name.equals(INFECTION)) {
+            return infection;
+        }
+        else if(name.equals(SPREAD)) {
+            return spread;
+        }
+        else if(name.endsWith(CREATION)) {
+            return creation[speciesOf(name, CREATION).ordinal()];
+        }
+        else if(name.endsWith(BREEDING) && speciesOf(name, BREEDING).isAnimal()) {
+            return breeding[speciesOf(name, BREEDING).ordinal()];
+        }
+        throw new IllegalArgumentException("Unknown parameter: " + name);
+    }
+
+    /**
+     * @return The names of all the parameters.
+     */
+    public static List<String> getNames()
+    {
+        List<String> names = new ArrayList<>();
+        for(Species species : Species.values()) {
+            names.add(species.name() + CREATION);
+        }
+        for(Species species : Species.values()) {
+            if(species.isAnimal()) {
+                names.add(species.name() + BREEDING);
+            }
+        }
+        names.add(INFECTION);
+        names.add(SPREAD);
+        return names;
+    }
+
+    /**
+     * @param species A species.
+     * @return The probability of a cell starting with one of the species,
+     *         if it has not been given one that comes before it.
+     */
+    public double getCreationProbability(Species species)
+    {
+        return creation[species.ordinal()];
+    }
+
+    /**
+     * @param species An animal species.
+     * @return The probability of an animal of the species breeding in a
+     *         step in which it can.
+     */
+    public double getBreedingProbability(Species species)
+    {
+        return breeding[species.ordinal()];
+    }
+
+    /**
+     * @return The probability of an animal catching the infection in a step.
+     */
+    public double getInfectionProbability()
+    {
+        return infection;
+    }
+
+    /**
+     * @return The probability of an infected animal infecting a neighbour.
+     */
+    public double getSpreadProbability()
+    {
+        return spread;
+    }
+}
@@ -1,49 +1,90 @@
-import java.util.List;
+import java.util.Arrays;
 
 /**
- *  Abstract base class representing plants in the Sealife simulation.
+ *  A plant in the Sealife simulation, of any plant species.
  *  This class extends Organism and provides core functionality for all plant species.
  *  Plants remain stationary but can grow and spread across the field based on environmental conditions.
  *
  * @author Aman H, Chris M
  */
-public abstract class Plant extends Organism
+public class Plant extends Organism
 {
     protected static final int MAX_GROWTH = 5;
     protected static final int GROWTH_RATE = 50;
 
-    public Plant(Location location) {
+    // The plant species, in the order they grow.
+    private static final Species[] PLANTS = Arrays.stream(Species.values())
+        .filter(species -> !species.isAnimal()).toArray(Species[]::new);
+
+    // The plant's species.
+    private final Species species;
+
+    /**
+     * Create a plant.
+     * @param species The plant's species, which must be a plant species.
+     * @param location The plant's location.
+     * @throws IllegalArgumentException If the species is an animal.
+     */
+    public Plant(Species species, Location location) {
         super(location);
+        if (species.isAnimal()) {
+            throw new IllegalArgumentException(species.getName() + " is not a plant.");
+        }
+        this.species = species;
+    }
+
+    /**
+     * Create a plant with a known id, drawing no random numbers, e.g.
+     * to stand for an entity of an EntityStore.
+     * @param species The plant's species, which must be a plant species.
+     * @param id The plant's id.
+     * @param location The plant's location.
+     */
+    Plant(Species species, long id, Location location) {
+        super(id, location);
+        this.species = species;
     }
 
     @Override
-    public void act(Field currentField, Field nextFieldState) {
+    public Species getSpecies()
+    {
+        return species;
+    }
+
+    @Override
+    public void act(SimulationContext context, Field currentField, Field nextFieldState) {
         if (isAlive())  {
-            Location currentLocation = getLocation();
-            nextFieldState.placeOrganism(this, currentLocation);
+            int index = nextFieldState.indexOf(getLocation());
+            // The plant is overgrown if an animal has already taken its cell.
+            if (nextFieldState.claimCell(index)) {
+                nextFieldState.placeOrganism(this, index);
+            }
         }
     }
 
     /**
      * Function to grow the plant
-     * First checks if there are any free locations in field and grows plants up to the growth rate per step.
+     * Grows a plant of each species in turn in randomly chosen empty cells,
+     * up to the growth rate per step. Stops early if the field fills up.
      * @param nextFieldState The new state being built.
      */
     public static void checkGrow(Field nextFieldState) {
-        List<Location> freeLocations = nextFieldState.getFreeLocations();
         for (int i = 0; i <= GROWTH_RATE; i++) {
-            if (freeLocations.isEmpty()) {
-                break;
+            for (Species species : PLANTS) {
+                int cell = nextFieldState.randomFreeCell();
+                if (cell < 0) {
+                    return;
+                }
+                nextFieldState.placeOrganism(species.create(nextFieldState.locationOf(cell)), cell);
             }
-            Location loc = freeLocations.remove(0);
-            Algae algae = new Algae(loc);
-            nextFieldState.placeOrganism(algae, loc);
-            if (freeLocations.isEmpty()) {
-                break;
-            }
-            loc = freeLocations.remove(0);
-            Seaweed seaweed = new Seaweed(loc);
-            nextFieldState.placeOrganism(seaweed, loc);
         }
     }
+
+    @Override
+    public String toString() {
+        return species.getName() + "{" +
+                "alive=" + isAlive() +
+                ", location=" + getLocation() +
+                '}';
+    }
 }
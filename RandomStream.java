@@ -0,0 +1,94 @@
+import java.util.Random;
+
+/**
+ * A counter-based random number stream.
+ * A stream is selected by a key made from the simulation seed, a step
+ * number and an id (of an organism, or of a task like the weather).
+ * The n-th number drawn after selecting a key is a fixed function of
+ * the key and n, so the same key always gives the same numbers, no
+ * matter which thread draws them or what was drawn on other streams.
+ *
+ * Numbers are produced by the SplitMix64 mixing function applied to
+ * the key plus a counter.
+ *
+ * @author Aman H, Chris M
+ */
+public class RandomStream extends Random
+{
+    // The golden-ratio increment used by SplitMix64.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // The key of the selected stream.
+    private long key;
+    // How many numbers have been drawn from the selected stream.
+    private long counter;
+
+    /**
+     * Create a stream with key zero.
+     */
+    public RandomStream()
+    {
+        super(0);
+    }
+
+    /**
+     * Select the stream for a seed, step and id, and start at its beginning.
+     * @param seed The seed of the simulation.
+     * @param step The step the numbers are drawn in.
+     * @param id The organism or task drawing the numbers.
+     */
+    public void select(long seed, long step, long id)
+    {
+        key = mix(seed + mix(step + GOLDEN_GAMMA) + mix(id ^ GOLDEN_GAMMA));
+        counter = 0;
+    }
+
+    /**
+     * Select a stream keyed by a single number.
+     * Called by the Random constructor.
+     * @param seed The key.
+     */
+    @Override
+    public void setSeed(long seed)
+    {
+        key = mix(seed);
+        counter = 0;
+    }
+
+    @Override
+    public long nextLong()
+    {
+        counter++;
+        return mix(key + counter * GOLDEN_GAMMA);
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public boolean nextBoolean()
+    {
+        return nextLong() < 0;
+    }
+
+    /**
+     * The SplitMix64 finalising function.
+     * @param z The value to mix.
+     * @return A well-scrambled function of z.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,10 +1,14 @@
 import java.util.Random;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
- * 'useShared' to false to get different random behaviour every time.
- * 
+ * Provide control over the randomization of the simulation. All random
+ * numbers come from counter-based streams (see RandomStream) derived from
+ * a simulation's seed, the step number and the id of whoever draws them. Every
+ * organism draws from its own stream each step, so with the same seed
+ * repeated runs perform exactly the same (which helps with testing), even
+ * when organisms are updated on many threads.
+ * Set 'useShared' to false to start from a different seed every time.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 7.0
  */
@@ -12,10 +16,23 @@ public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
-    // Determine whether a shared random generator is to be provided.
+    // Determine whether runs start from the fixed default seed.
     private static final boolean useShared = false;
+    // The id of the stream the weather draws from.
+    public static final long WEATHER_STREAM = -1;
+    // The id of the stream new plants are grown from.
+    public static final long GROWTH_STREAM = -2;
+    // The id of the stream the infection phase draws from.
+    public static final long INFECTION_STREAM = -3;
+    // The seed chosen at start-up.
+    private static final long initialSeed = chooseSeed();
+    // The seed new simulations start from.
+    private static volatile long seed = initialSeed;
+    // The stream currently selected on each thread.
+    private static final ThreadLocal<RandomStream> streams =
+        ThreadLocal.withInitial(RandomStream::new);
+    // A generator drawing from the calling thread's selected stream.
+    private static final Random rand = new CurrentStream();
 
     /**
      * Constructor for objects of class Randomizer
@@ -26,27 +43,113 @@ public class Randomizer
 
     /**
      * Provide a random generator.
+     * Numbers are drawn from whichever stream the calling thread
+     * last selected, so the generator can be shared by everyone.
      * @return A random object.
      */
     public static Random getRandom()
+    {
+        return rand;
+    }
+
+    /**
+     * Select the stream the calling thread draws from, derived from the
+     * shared seed.
+     * @param step The current step of the simulation.
+     * @param id The organism's id, or one of the stream ids of this class.
+     */
+    public static void select(long step, long id)
+    {
+        streams.get().select(seed, step, id);
+    }
+
+    /**
+     * Select the stream the calling thread draws from, derived from a
+     * simulation's own seed.
+     * @param simulationSeed The seed of the simulation.
+     * @param step The current step of the simulation.
+     * @param id The organism's id, or one of the stream ids of this class.
+     */
+    public static void select(long simulationSeed, long step, long id)
+    {
+        streams.get().select(simulationSeed, step, id);
+    }
+
+    /**
+     * Set the shared seed, which new simulations take as their own.
+     * @param newSeed The seed.
+     */
+    public static void setSeed(long newSeed)
+    {
+        seed = newSeed;
+    }
+
+    /**
+     * @return The shared seed, which new simulations take as their own.
+     */
+    public static long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Reset the randomization to the seed chosen at start-up.
+     * This will have no effect unless the seed has been changed
+     * with setSeed.
+     */
+    public static void reset()
+    {
+        seed = initialSeed;
+    }
+
+    /**
+     * Choose the seed to start from.
+     * @return The fixed seed if useShared is set, otherwise an arbitrary one.
+     */
+    private static long chooseSeed()
     {
         if(useShared) {
-            return rand;
+            return SEED;
         }
         else {
-            return new Random();
+            return new Random().nextLong();
         }
     }
-    
+
     /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not 
-     * through a shared Random generator.
+     * A generator that draws every number from the stream the calling
+     * thread has selected.
      */
-    public static void reset()
+    private static class CurrentStream extends Random
     {
-        if(useShared) {
-            rand.setSeed(SEED);
+        @Override
+        protected int next(int bits)
+        {
+            return (int) (streams.get().nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public long nextLong()
+        {
+            return streams.get().nextLong();
+        }
+
+        @Override
+        public double nextDouble()
+        {
+            return streams.get().nextDouble();
+        }
+
+        @Override
+        public boolean nextBoolean()
+        {
+            return streams.get().nextBoolean();
+        }
+
+        @Override
+        public int nextInt(int bound)
+        {
+            return streams.get().nextInt(bound);
         }
     }
 }
@@ -0,0 +1,472 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Records what changes in the field at every step, so that a Replayer
+ * can later rebuild the field at any step without running the
+ * simulation again.
+ *
+ * After each step the recorder compares the field with the one before
+ * and writes the deaths (with their cause), moves, births and new
+ * infections, and the weather. Every KEYFRAME_INTERVAL steps, and
+ * whenever the steps do not follow on (after a reset or restore), it
+ * writes the whole field instead, so that a replay can start there.
+ *
+ * The log starts with a header, little-endian like the rest:
+ *   int magic ("SLRP"), int version, int depth, int width, int species
+ *   count, and per species a short name length and its UTF-8 name.
+ * It continues with blocks, each of a keyframe and the deltas after it:
+ *   int first step, int frame count, int length, int compressed length,
+ *   then the frames compressed with Deflater.
+ * A frame is a byte KEYFRAME or DELTA, the step and the weather ordinal.
+ * A keyframe holds the number of organisms and, per organism, the gap
+ * from the previous organism's cell, its state and its 8-byte id.
+ * A delta holds four lists, each a count followed by entries in cell
+ * order, cells given as gaps from the entry before:
+ *   deaths (cell, cause), moves (new cell, old cell - new cell),
+ *   births (cell, state, id) and infections (cell).
+ * Numbers other than ids are varints, signed ones zigzag encoded.
+ * A state is (species ordinal + 1) << 2, plus INFECTED and MALE.
+ * A cause is a DeathCause ordinal, or DISPLACED for an organism that
+ * left the field alive, such as a plant an animal moved onto.
+ *
+ * @author Aman H, Chris M
+ */
+public class ReplayRecorder implements SimulationObserver
+{
+    // Identifies the format: "SLRP".
+    static final int MAGIC = 0x534c5250;
+    static final int VERSION = 1;
+    // The kinds of frame.
+    static final int KEYFRAME = 0;
+    static final int DELTA = 1;
+    // Bits of an organism's state.
+    static final int INFECTED = 2;
+    static final int MALE = 1;
+    // The cause recorded for organisms that left the field alive.
+    static final int DISPLACED = Organism.DeathCause.values().length;
+    // The default number of steps from one keyframe to the next.
+    private static final int KEYFRAME_INTERVAL = 100;
+
+    private final FileChannel channel;
+    private final Simulator simulator;
+    private final int keyframeInterval;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    // The frames of the current block, uncompressed.
+    private final FrameBuffer frames = new FrameBuffer();
+    private byte[] compressed = new byte[1 << 16];
+    private int blockStep;
+    private int blockFrames;
+    // The last step recorded, or -1 if there was none.
+    private int lastStep = -1;
+
+    // The live organisms after the last step recorded, in cell order,
+    // with their cells and states.
+    private Organism[] organisms = new Organism[1024];
+    private int[] cells = new int[1024];
+    private byte[] states = new byte[1024];
+    private int count;
+    // The same for the step being recorded.
+    private Organism[] nextOrganisms = new Organism[1024];
+    private int[] nextCells = new int[1024];
+    private byte[] nextStates = new byte[1024];
+    private int nextCount;
+    // Which of the organisms of the last step are still in the field.
+    private boolean[] seen = new boolean[1024];
+    // An open-addressing table from organism id to position in
+    // organisms; -1 marks an empty slot.
+    private long[] tableIds = new long[2048];
+    private int[] tablePositions = new int[2048];
+
+    /**
+     * Record a simulation with keyframes every KEYFRAME_INTERVAL steps.
+     * @param path The log file, which is replaced if it exists.
+     * @param simulator The simulation, for its weather.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ReplayRecorder(Path path, Simulator simulator) throws IOException
+    {
+        this(path, simulator, KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Record a simulation.
+     * @param path The log file, which is replaced if it exists.
+     * @param simulator The simulation, for its weather.
+     * @param keyframeInterval The number of steps from one keyframe to
+     *                         the next. Fewer make the log smaller but
+     *                         seeking slower.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ReplayRecorder(Path path, Simulator simulator, int keyframeInterval) throws IOException
+    {
+        this.simulator = simulator;
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        Arrays.fill(tablePositions, -1);
+    }
+
+    /**
+     * Record the field after a step.
+     * @param step The step that has just been made.
+     * @param field The field.
+     */
+    @Override
+    public void showStatus(int step, Field field)
+    {
+        try {
+            if(lastStep < 0) {
+                writeHeader(field);
+            }
+            gather(field);
+            boolean keyframe = step != lastStep + 1 || blockFrames >= keyframeInterval;
+            if(keyframe) {
+                flushBlock();
+                blockStep = step;
+            }
+            frames.putByte(keyframe ? KEYFRAME : DELTA);
+            frames.putVarint(step);
+            frames.putByte(simulator.getWeather().getCondition().ordinal());
+            if(keyframe) {
+                writeKeyframe();
+            }
+            else {
+                writeDelta();
+            }
+            blockFrames++;
+            lastStep = step;
+            swap();
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Cannot write the replay log.", e);
+        }
+    }
+
+    /**
+     * Write the log header.
+     * @param field The field being recorded.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeHeader(Field field) throws IOException
+    {
+        Species[] species = Species.values();
+        byte[][] names = new byte[species.length][];
+        int size = 4 * 5;
+        for(int s = 0; s < species.length; s++) {
+            names[s] = species[s].getName().getBytes(StandardCharsets.UTF_8);
+            size += 2 + names[s].length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION)
+              .putInt(field.getDepth()).putInt(field.getWidth())
+              .putInt(species.length);
+        for(byte[] name : names) {
+            header.putShort((short) name.length).put(name);
+        }
+        header.flip();
+        while(header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Collect the live organisms of the field in cell order.
+     * @param field The field.
+     */
+    private void gather(Field field)
+    {
+        nextCount = 0;
+        for(int index = field.nextOccupied(0); index >= 0; index = field.nextOccupied(index + 1)) {
+            // Only live organisms are recorded, so dead ones need no object.
+            if((field.getType(index) & Field.ALIVE) != 0) {
+                Organism anOrganism = field.getOrganismAt(index);
+                if(nextCount == nextOrganisms.length) {
+                    int capacity = nextCount * 2;
+                    nextOrganisms = Arrays.copyOf(nextOrganisms, capacity);
+                    nextCells = Arrays.copyOf(nextCells, capacity);
+                    nextStates = Arrays.copyOf(nextStates, capacity);
+                }
+                nextOrganisms[nextCount] = anOrganism;
+                nextCells[nextCount] = index;
+                nextStates[nextCount] = stateOf(anOrganism);
+                nextCount++;
+            }
+        }
+    }
+
+    /**
+     * @param anOrganism An organism.
+     * @return The organism's state, as written to the log.
+     */
+    static byte stateOf(Organism anOrganism)
+    {
+        int state = (anOrganism.getSpecies().ordinal() + 1) << 2;
+        if(anOrganism instanceof Animal animal) {
+            state |= animal.isInfected() ? INFECTED : 0;
+            state |= animal.getGender() == Animal.Gender.MALE ? MALE : 0;
+        }
+        return (byte) state;
+    }
+
+    /**
+     * Write every organism of the step.
+     */
+    private void writeKeyframe()
+    {
+        frames.putVarint(nextCount);
+        int cell = 0;
+        for(int i = 0; i < nextCount; i++) {
+            frames.putVarint(nextCells[i] - cell);
+            cell = nextCells[i];
+            frames.putByte(nextStates[i]);
+            frames.putLong(nextOrganisms[i].getId());
+        }
+    }
+
+    /**
+     * Write what has changed since the last step.
+     */
+    private void writeDelta()
+    {
+        if(seen.length < count) {
+            seen = new boolean[organisms.length];
+        }
+        Arrays.fill(seen, 0, count, false);
+        // Match this step's organisms with the last step's, by id and
+        // species rather than by object, since a field holding entities
+        // makes new objects for them after every step.
+        int[] previous = new int[nextCount];
+        for(int i = 0; i < nextCount; i++) {
+            int position = find(nextOrganisms[i].getId());
+            if(position >= 0 && states[position] >>> 2 == nextStates[i] >>> 2) {
+                seen[position] = true;
+                previous[i] = position;
+            }
+            else {
+                previous[i] = -1;
+            }
+        }
+
+        int deaths = 0;
+        for(int p = 0; p < count; p++) {
+            deaths += seen[p] ? 0 : 1;
+        }
+        frames.putVarint(deaths);
+        int cell = 0;
+        for(int p = 0; p < count; p++) {
+            if(!seen[p]) {
+                Organism.DeathCause cause = organisms[p].getDeathCause();
+                frames.putVarint(cells[p] - cell);
+                cell = cells[p];
+                frames.putByte(cause == null || organisms[p].isAlive() ? DISPLACED : cause.ordinal());
+            }
+        }
+
+        int moves = 0;
+        int births = 0;
+        int infections = 0;
+        for(int i = 0; i < nextCount; i++) {
+            int p = previous[i];
+            if(p < 0) {
+                births++;
+            }
+            else {
+                moves += cells[p] != nextCells[i] ? 1 : 0;
+                infections += (nextStates[i] & ~states[p] & INFECTED) != 0 ? 1 : 0;
+            }
+        }
+        frames.putVarint(moves);
+        cell = 0;
+        for(int i = 0; i < nextCount; i++) {
+            int p = previous[i];
+            if(p >= 0 && cells[p] != nextCells[i]) {
+                frames.putVarint(nextCells[i] - cell);
+                cell = nextCells[i];
+                frames.putSignedVarint(cells[p] - nextCells[i]);
+            }
+        }
+        frames.putVarint(births);
+        cell = 0;
+        for(int i = 0; i < nextCount; i++) {
+            if(previous[i] < 0) {
+                frames.putVarint(nextCells[i] - cell);
+                cell = nextCells[i];
+                frames.putByte(nextStates[i]);
+                frames.putLong(nextOrganisms[i].getId());
+            }
+        }
+        frames.putVarint(infections);
+        cell = 0;
+        for(int i = 0; i < nextCount; i++) {
+            int p = previous[i];
+            if(p >= 0 && (nextStates[i] & ~states[p] & INFECTED) != 0) {
+                frames.putVarint(nextCells[i] - cell);
+                cell = nextCells[i];
+            }
+        }
+    }
+
+    /**
+     * Make the organisms of the step just recorded the ones to compare
+     * the next step with, and index them by id.
+     */
+    private void swap()
+    {
+        Organism[] swapOrganisms = organisms;
+        organisms = nextOrganisms;
+        nextOrganisms = swapOrganisms;
+        int[] swapCells = cells;
+        cells = nextCells;
+        nextCells = swapCells;
+        byte[] swapStates = states;
+        states = nextStates;
+        nextStates = swapStates;
+        count = nextCount;
+        // Drop references to organisms that have gone.
+        Arrays.fill(nextOrganisms, null);
+
+        int capacity = tablePositions.length;
+        while(capacity < count * 2) {
+            capacity *= 2;
+        }
+        if(capacity != tablePositions.length) {
+            tableIds = new long[capacity];
+            tablePositions = new int[capacity];
+        }
+        Arrays.fill(tablePositions, -1);
+        int mask = capacity - 1;
+        for(int p = 0; p < count; p++) {
+            long id = organisms[p].getId();
+            int slot = hash(id) & mask;
+            while(tablePositions[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            tableIds[slot] = id;
+            tablePositions[slot] = p;
+        }
+    }
+
+    /**
+     * @param id An organism id.
+     * @return The position in organisms of the organism with that id,
+     *         or -1 if there is none.
+     */
+    private int find(long id)
+    {
+        int mask = tablePositions.length - 1;
+        int slot = hash(id) & mask;
+        while(tablePositions[slot] >= 0) {
+            if(tableIds[slot] == id) {
+                return tablePositions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param id An organism id.
+     * @return A hash of the id.
+     */
+    private static int hash(long id)
+    {
+        return (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+    }
+
+    /**
+     * Compress the frames of the current block and write them out.
+     * @throws IOException If the file cannot be written.
+     */
+    private void flushBlock() throws IOException
+    {
+        if(blockFrames == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(frames.bytes, 0, frames.length);
+        deflater.finish();
+        int length = 0;
+        while(!deflater.finished()) {
+            if(length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(blockStep).putInt(blockFrames).putInt(frames.length).putInt(length).flip();
+        ByteBuffer body = ByteBuffer.wrap(compressed, 0, length);
+        while(header.hasRemaining() || body.hasRemaining()) {
+            channel.write(new ByteBuffer[] { header, body });
+        }
+        frames.length = 0;
+        blockFrames = 0;
+    }
+
+    /**
+     * Write the last block and close the log.
+     * @throws IOException If the file cannot be written.
+     */
+    public void close() throws IOException
+    {
+        flushBlock();
+        deflater.end();
+        channel.close();
+    }
+
+    /**
+     * A growable buffer of encoded frames.
+     */
+    private static class FrameBuffer
+    {
+        private byte[] bytes = new byte[1 << 16];
+        private int length;
+
+        /**
+         * Make room for some more bytes.
+         * @param extra The number of bytes.
+         */
+        private void reserve(int extra)
+        {
+            if(length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private void putByte(int value)
+        {
+            reserve(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void putVarint(int value)
+        {
+            reserve(5);
+            while((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void putSignedVarint(int value)
+        {
+            putVarint((value << 1) ^ (value >> 31));
+        }
+
+        private void putLong(long value)
+        {
+            reserve(8);
+            for(int i = 0; i < 8; i++) {
+                bytes[length++] = (byte) (value >>> (8 * i));
+            }
+        }
+    }
+}
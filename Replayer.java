@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Rebuilds the field of a recorded simulation at any step from a log
+ * written by ReplayRecorder, by starting from the nearest keyframe at
+ * or before the step and applying the changes after it. Nothing is
+ * simulated, so no random numbers are drawn from the simulation's
+ * streams and a replay is much faster than a rerun.
+ *
+ * Stepping forward through the log only applies one step's changes at
+ * a time; going back or jumping ahead starts again from a keyframe.
+ * The organisms of a rebuilt field have their species, id, gender and
+ * infection, but not their age or food level, which are not recorded.
+ *
+ * @author Aman H, Chris M
+ */
+public class Replayer implements AutoCloseable
+{
+    private final FileChannel channel;
+    private final int depth, width;
+    // The position in the file, first step and frame count of each block.
+    private final List<long[]> blocks = new ArrayList<>();
+
+    // The state of every cell at the current step, as written by the
+    // recorder, or 0 if empty, and the id of its occupant.
+    private final byte[] states;
+    private final long[] ids;
+    // The block whose frames are loaded, or -1, and those frames.
+    private int block = -1;
+    private byte[] frames = new byte[0];
+    // The position in frames of the next frame to apply.
+    private int position;
+    // The current step, or -1 if none has been replayed yet.
+    private int step = -1;
+    private Weather.Condition weather;
+    // The deaths of the current step by species and cause.
+    private final int[][] deaths;
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Open a replay log and find its blocks.
+     * @param path The log file.
+     * @throws IOException If the file cannot be read or is not a log.
+     */
+    public Replayer(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = read(0, 20);
+        if(header.getInt() != ReplayRecorder.MAGIC) {
+            throw new IOException(path + " is not a replay log.");
+        }
+        int version = header.getInt();
+        if(version != ReplayRecorder.VERSION) {
+            throw new IOException("Unsupported replay log version " + version + ".");
+        }
+        depth = header.getInt();
+        width = header.getInt();
+        int speciesCount = header.getInt();
+        if(speciesCount != Species.values().length) {
+            throw new IOException("The log is of " + speciesCount + " species, not " +
+                                  Species.values().length + ".");
+        }
+        long offset = 20;
+        for(int i = 0; i < speciesCount; i++) {
+            offset += 2 + read(offset, 2).getShort();
+        }
+        long size = channel.size();
+        while(offset + 16 <= size) {
+            ByteBuffer blockHeader = read(offset, 16);
+            int firstStep = blockHeader.getInt();
+            int frameCount = blockHeader.getInt();
+            blockHeader.getInt();
+            int compressedLength = blockHeader.getInt();
+            blocks.add(new long[] { offset, firstStep, frameCount });
+            offset += 16 + compressedLength;
+        }
+        int cellCount = Math.multiplyExact(depth, width);
+        states = new byte[cellCount];
+        ids = new long[cellCount];
+        deaths = new int[Species.values().length][ReplayRecorder.DISPLACED + 1];
+    }
+
+    /**
+     * Read bytes from the file.
+     * @param offset Where to start.
+     * @param length The number of bytes.
+     * @return The bytes, little-endian.
+     * @throws IOException If the file is too short.
+     */
+    private ByteBuffer read(long offset, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("The replay log is truncated.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Move the replay to a step.
+     * @param target The step.
+     * @throws IOException If the log cannot be read or does not hold
+     *                     the step. If a step was recorded more than
+     *                     once, e.g. after a restore, the latest is used.
+     */
+    public void seek(int target) throws IOException
+    {
+        int found = -1;
+        for(int b = blocks.size() - 1; b >= 0 && found < 0; b--) {
+            long[] entry = blocks.get(b);
+            if(entry[1] <= target && target < entry[1] + entry[2]) {
+                found = b;
+            }
+        }
+        if(found < 0) {
+            throw new IOException("Step " + target + " is not in the replay log.");
+        }
+        if(found != block || target < step) {
+            load(found);
+        }
+        while(step != target) {
+            applyFrame();
+        }
+    }
+
+    /**
+     * Load and decompress the frames of a block.
+     * @param b The block's position in blocks.
+     * @throws IOException If the block cannot be read.
+     */
+    private void load(int b) throws IOException
+    {
+        long offset = blocks.get(b)[0];
+        ByteBuffer blockHeader = read(offset, 16);
+        blockHeader.getInt();
+        blockHeader.getInt();
+        int length = blockHeader.getInt();
+        int compressedLength = blockHeader.getInt();
+        ByteBuffer compressed = read(offset + 16, compressedLength);
+        if(frames.length < length) {
+            frames = new byte[length];
+        }
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int inflated = 0;
+            while(inflated < length && !inflater.finished()) {
+                inflated += inflater.inflate(frames, inflated, length - inflated);
+            }
+        }
+        catch(DataFormatException e) {
+            throw new IOException("The replay log is corrupt.", e);
+        }
+        block = b;
+        position = 0;
+        step = -1;
+    }
+
+    /**
+     * Apply the next frame of the loaded block.
+     */
+    private void applyFrame()
+    {
+        int kind = frames[position++];
+        step = readVarint();
+        weather = Weather.Condition.values()[frames[position++]];
+        for(int[] counts : deaths) {
+            Arrays.fill(counts, 0);
+        }
+        if(kind == ReplayRecorder.KEYFRAME) {
+            Arrays.fill(states, (byte) 0);
+            int count = readVarint();
+            int cell = 0;
+            for(int i = 0; i < count; i++) {
+                cell += readVarint();
+                states[cell] = frames[position++];
+                ids[cell] = readLong();
+            }
+            return;
+        }
+
+        int count = readVarint();
+        int cell = 0;
+        for(int i = 0; i < count; i++) {
+            cell += readVarint();
+            int cause = frames[position++];
+            deaths[speciesOf(states[cell]).ordinal()][cause]++;
+            states[cell] = 0;
+        }
+        // Moves happen at once: an animal may move into a cell that
+        // another is leaving, so all are lifted before any is put down.
+        count = readVarint();
+        int[] to = new int[count];
+        byte[] movedStates = new byte[count];
+        long[] movedIds = new long[count];
+        cell = 0;
+        for(int i = 0; i < count; i++) {
+            cell += readVarint();
+            int from = cell + readSignedVarint();
+            to[i] = cell;
+            movedStates[i] = states[from];
+            movedIds[i] = ids[from];
+            states[from] = 0;
+        }
+        for(int i = 0; i < count; i++) {
+            states[to[i]] = movedStates[i];
+            ids[to[i]] = movedIds[i];
+        }
+        count = readVarint();
+        cell = 0;
+        for(int i = 0; i < count; i++) {
+            cell += readVarint();
+            states[cell] = frames[position++];
+            ids[cell] = readLong();
+        }
+        count = readVarint();
+        cell = 0;
+        for(int i = 0; i < count; i++) {
+            cell += readVarint();
+            states[cell] |= ReplayRecorder.INFECTED;
+        }
+    }
+
+    /**
+     * @param state A cell state.
+     * @return The species of the cell's occupant.
+     */
+    private static Species speciesOf(byte state)
+    {
+        return Species.values()[(state >> 2) - 1];
+    }
+
+    private int readVarint()
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = frames[position++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while(b < 0);
+        return value;
+    }
+
+    private int readSignedVarint()
+    {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readLong()
+    {
+        long value = 0;
+        for(int i = 0; i < 8; i++) {
+            value |= (frames[position++] & 0xffL) << (8 * i);
+        }
+        return value;
+    }
+
+    /**
+     * Rebuild the field at a step.
+     * @param target The step.
+     * @return A new field holding the organisms alive after the step.
+     * @throws IOException If the log cannot be read or does not hold
+     *                     the step.
+     */
+    public Field fieldAt(int target) throws IOException
+    {
+        seek(target);
+        Field field = new Field(depth, width);
+        for(int index = 0; index < states.length; index++) {
+            byte state = states[index];
+            if(state != 0) {
+                Organism anOrganism = speciesOf(state).create(field.locationOf(index));
+                anOrganism.restoreId(ids[index]);
+                if(anOrganism instanceof Animal animal) {
+                    animal.restoreGender((state & ReplayRecorder.MALE) != 0 ?
+                                         Animal.Gender.MALE : Animal.Gender.FEMALE);
+                    animal.setInfected((state & ReplayRecorder.INFECTED) != 0);
+                }
+                field.placeOrganism(anOrganism, index);
+            }
+        }
+        return field;
+    }
+
+    /**
+     * @return The weather at the current step.
+     */
+    public Weather.Condition getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * Return the number of organisms of a species that went from the
+     * field in the current step. Nothing is known of the step of a
+     * keyframe, so it has none.
+     * @param species The species.
+     * @param cause How they died, or null for those that left the field
+     *              alive, such as plants an animal moved onto.
+     * @return The number of deaths.
+     */
+    public int getDeaths(Species species, Organism.DeathCause cause)
+    {
+        return deaths[species.ordinal()][cause == null ? ReplayRecorder.DISPLACED : cause.ordinal()];
+    }
+
+    /**
+     * @return The first step in the log, or -1 if it is empty.
+     */
+    public int getFirstStep()
+    {
+        return blocks.isEmpty() ? -1 : (int) blocks.get(0)[1];
+    }
+
+    /**
+     * @return The last step in the log, or -1 if it is empty.
+     */
+    public int getLastStep()
+    {
+        int last = -1;
+        for(long[] entry : blocks) {
+            last = Math.max(last, (int) (entry[1] + entry[2] - 1));
+        }
+        return last;
+    }
+
+    /**
+     * Close the log.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        inflater.end();
+        channel.close();
+    }
+}
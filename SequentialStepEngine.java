@@ -0,0 +1,29 @@
+import java.util.List;
+
+/**
+ * A step engine that updates the organisms one at a time, in the
+ * order of the current field's organism list, on the calling thread.
+ *
+ * @author Aman H, Chris M
+ */
+public class SequentialStepEngine implements StepEngine
+{
+    // The neighbourhood snapshot reused for every animal in a step.
+    private final Neighbourhood neighbourhood = new Neighbourhood();
+
+    /**
+     * Update every organism in the current field, building the next state.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The cleared field the next state is built in.
+     */
+    @Override
+    public void step(SimulationContext context, Field currentField, Field nextFieldState)
+    {
+        List<Organism> organisms = currentField.getOrganisms();
+        for (Organism anOrganism : organisms) {
+            context.select(anOrganism.getId());
+            anOrganism.update(context, currentField, nextFieldState, neighbourhood);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * What the organisms of one simulation need to know about it while they
+ * act: the step and the time of day, the weather, the seed of its random
+ * streams, its parameters and its food web.
+ *
+ * The simulator makes a new context at the start of every step, once
+ * the weather has changed, and hands it to the step engine, which
+ * passes it to every organism it updates. Nothing about a simulation is
+ * kept in static state, so any number of simulations can run in one
+ * process, on one thread or many, without affecting each other.
+ *
+ * @author Aman H, Chris M
+ */
+public final class SimulationContext
+{
+    private final int step;
+    private final int timeOfDay;
+    private final Weather.Condition weather;
+    private final long seed;
+    private final Parameters parameters;
+    private final FoodWeb foodWeb;
+
+    /**
+     * Describe a step of a simulation.
+     * @param step The number of the step being made.
+     * @param timeOfDay The hour of the day during the step.
+     * @param weather The weather during the step.
+     * @param seed The seed of the simulation's random streams.
+     * @param parameters The simulation's probabilities.
+     * @param foodWeb Which species eat which in the simulation.
+     */
+    public SimulationContext(int step, int timeOfDay, Weather.Condition weather,
+                             long seed, Parameters parameters, FoodWeb foodWeb)
+    {
+        this.step = step;
+        this.timeOfDay = timeOfDay;
+        this.weather = weather;
+        this.seed = seed;
+        this.parameters = parameters;
+        this.foodWeb = foodWeb;
+    }
+
+    /**
+     * Select the stream the calling thread draws from for an organism,
+     * or a task such as growing plants, in this step.
+     * @param id The organism's id, or one of the stream ids of Randomizer.
+     */
+    public void select(long id)
+    {
+        Randomizer.select(seed, step, id);
+    }
+
+    /**
+     * @return The number of the step being made.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The hour of the day during the step, in 24-hour format.
+     */
+    public int getTimeOfDay()
+    {
+        return timeOfDay;
+    }
+
+    /**
+     * @return The weather during the step.
+     */
+    public Weather.Condition getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return The seed of the simulation's random streams.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return The simulation's probabilities.
+     */
+    public Parameters getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * @return Which species eat which in the simulation.
+     */
+    public FoodWeb getFoodWeb()
+    {
+        return foodWeb;
+    }
+}
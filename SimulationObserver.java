@@ -0,0 +1,17 @@
+/**
+ * Something that is told about the state of the simulation after it is
+ * reset and after every step, e.g. a graphical view.
+ * A simulator may have any number of observers, including none, so it
+ * can run without a display.
+ *
+ * @author Aman H, Chris M
+ */
+public interface SimulationObserver
+{
+    /**
+     * Show the current status of the field.
+     * @param step Which iteration step it is.
+     * @param field The field whose status is to be displayed.
+     */
+    void showStatus(int step, Field field);
+}
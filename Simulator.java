@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -14,17 +16,10 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
-
-    // Population probabilities
-    private static final double SHARK_CREATION_PROBABILITY = 0.02;      // Fewer apex predators
-    private static final double BARRACUDA_CREATION_PROBABILITY = 0.02;  // Medium predators
-    private static final double TUNA_CREATION_PROBABILITY = 0.06;       // More prey
-    private static final double GOLDFISH_CREATION_PROBABILITY = 0.025;   // Increased prey population
-    private static final double PARROTFISH_CREATION_PROBABILITY = 0.025; // Increased prey population
-    
-    // Food Source Probabilities
-    private static final double ALGAE_CREATION_PROBABILITY = 0.0175;
-    private static final double SEAWEED_CREATION_PROBABILITY = 0.0175;
+    // The default number of steps in a long run.
+    private static final int DEFAULT_STEPS = 700;
+    // The pause between steps when there is a display, in milliseconds.
+    private static final int DISPLAY_DELAY = 50;
 
     // Time of day constants
     private static final int DAY_START = 5;
@@ -33,14 +28,37 @@ public class Simulator
 
     // The current state of the field.
     private Field field;
+    // The field the next state is built in. The two fields are
+    // swapped every step rather than allocating a new one.
+    private Field nextField;
     // The current step of the simulation.
     private int step;
     // The current time of day in the simulation.
     private int timeOfDay;
-    // A graphical view of the simulation.
-    private final SimulatorView view;
+    // Views and other observers told about every step.
+    private final List<SimulationObserver> observers = new ArrayList<>();
+    // The pause between steps, in milliseconds.
+    private int delay;
     // Weather
     private Weather weather;
+    // Advances the organisms of the field each step.
+    private StepEngine engine = new SequentialStepEngine();
+    // Spreads the infection at the start of each step.
+    private final InfectionPhase infection = new InfectionPhase();
+    // Where the population statistics go after every step.
+    private StatsSink stats;
+    // Scales the creation probabilities used when populating the field.
+    private double density = 1.0;
+    // The creation, breeding and infection probabilities.
+    private Parameters parameters;
+    // Which species eat which, or null for the default food web, which
+    // is only loaded once it is needed.
+    private FoodWeb foodWeb;
+    // The seed this simulation's random streams are derived from.
+    private long seed;
+    // Whether the field was restored from a checkpoint rather than
+    // reached by a step, so that it has no statistics of its own.
+    private boolean restored;
 
     /**
      * Construct a simulation field with default size.
@@ -51,12 +69,58 @@ public class Simulator
     }
     
     /**
-     * Create a simulation field with the given size.
+     * Create a simulation field with the given size, shown in a window.
      * @param depth Depth of the field. Must be greater than zero.
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
     {
+        this(depth, width, false);
+    }
+
+    /**
+     * Create a simulation field with the given size.
+     * A headless simulation has no window and never touches AWT, and
+     * runs its steps without pausing between them.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param headless Whether to run without a window.
+     */
+    public Simulator(int depth, int width, boolean headless)
+    {
+        this(depth, width, headless, Randomizer.getSeed(), Parameters.DEFAULTS, new ConsoleStatsSink());
+    }
+
+    /**
+     * Create a headless simulation with the given size, seed and
+     * parameters, recording its statistics to a sink from the start.
+     * Simulations share no state, so any number can run side by side.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param seed The seed of the simulation's random streams.
+     * @param parameters The probabilities to simulate with.
+     * @param stats Where the population statistics go.
+     */
+    public Simulator(int depth, int width, long seed, Parameters parameters, StatsSink stats)
+    {
+        this(depth, width, true, seed, parameters, stats);
+    }
+
+    /**
+     * Create a simulation field.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param headless Whether to run without a window.
+     * @param seed The seed of the simulation's random streams.
+     * @param parameters The probabilities to simulate with.
+     * @param stats Where the population statistics go.
+     */
+    private Simulator(int depth, int width, boolean headless, long seed,
+                      Parameters parameters, StatsSink stats)
+    {
+        this.seed = seed;
+        this.parameters = parameters;
+        this.stats = stats;
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be >= zero.");
             System.out.println("Using default values.");
@@ -65,8 +129,12 @@ public class Simulator
         }
         
         field = new Field(depth, width);
-        view = new SimulatorView(depth, width, this);
+        nextField = new Field(depth, width);
         weather = new Weather();
+        if(!headless) {
+            addObserver(new SimulatorView(depth, width, this));
+            delay = DISPLAY_DELAY;
+        }
 
         reset();
     }
@@ -77,7 +145,7 @@ public class Simulator
      */
     public void runLongSimulation()
     {
-        simulate(700);
+        simulate(DEFAULT_STEPS);
     }
     
     /**
@@ -87,38 +155,41 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        reportStats();
         for(int n = 1; n <= numSteps && field.isViable(); n++) {
             simulateOneStep();
-            delay(50);         // adjust this to change execution speed
+            if(delay > 0) {
+                delay(delay);
+            }
         }
     }
     
     /**
      * Run the simulation from its current state for a single step.
-     * Iterate over the whole field updating the state of each organism.
-     * Checks for infection and spread of infection if current organism is an animal.
-     * Grows plants in preparation for the next field state.
+     * The infection and spread of infection among animals comes first,
+     * then the step engine updates the state of each organism in the
+     * field, handing each the context of the step, which is made once
+     * here. Grows plants in preparation for the next field state.
      */
     public void simulateOneStep()
     {
         step++;
+        restored = false;
         timeOfDay = (timeOfDay + HOURS_PER_STEP) % DAY_END;
+        Randomizer.select(seed, step, Randomizer.WEATHER_STREAM);
         weather.update();
-        Field nextFieldState = new Field(field.getDepth(), field.getWidth());    
-        List<Organism> organisms = field.getOrganisms();
-        for (Organism anOrganism : organisms) {
-            if (anOrganism instanceof Animal animal) {
-                animal.handleInfection();
-                animal.handleSpread(field);
-            }
-            
-            anOrganism.act(field, nextFieldState);
-        }
+        SimulationContext context = new SimulationContext(step, timeOfDay, weather.getCondition(),
+                                                          seed, parameters, getFoodWeb());
+        Field nextFieldState = nextField;
+        nextFieldState.clear();
+        context.select(Randomizer.INFECTION_STREAM);
+        infection.step(context, field, nextFieldState);
+        engine.step(context, field, nextFieldState);
+        context.select(Randomizer.GROWTH_STREAM);
         Organism.growPlants(nextFieldState);
+        nextField = field;
         field = nextFieldState;
         reportStats();
-        view.showStatus(step, field);
+        notifyObservers();
     }
         
     /**
@@ -127,12 +198,147 @@ public class Simulator
     public final void reset()
     {
         step = 0;
+        restored = false;
         timeOfDay = DAY_START;
+        infection.reset();
         
         populate();
-        view.showStatus(step, field);
+        reportStats();
+        notifyObservers();
+    }
+
+    /**
+     * Save the full state of the simulation, so that it can later be
+     * resumed with restore, in this or another process.
+     * @param path The file to write, which is replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveCheckpoint(Path path) throws IOException
+    {
+        new Checkpoint(step, timeOfDay, weather.getCondition(), seed)
+            .write(path, field);
+    }
+
+    /**
+     * Resume the simulation from a checkpoint written by saveCheckpoint.
+     * The following steps are the same as those that followed the
+     * checkpoint when it was taken. The simulation's seed is restored too.
+     * No statistics are recorded for the restored step, since the counts
+     * of births and infections it was reached with are not saved; the
+     * statistics sink takes up recording from the next step.
+     * @param path The checkpoint file.
+     * @throws IOException If the file cannot be read or is of a field of
+     *                     a different size.
+     */
+    public void restore(Path path) throws IOException
+    {
+        Checkpoint checkpoint = Checkpoint.read(path, field);
+        infection.reset();
+        step = checkpoint.getStep();
+        timeOfDay = checkpoint.getTimeOfDay();
+        weather.setCondition(checkpoint.getWeather());
+        seed = checkpoint.getSeed();
+        restored = true;
+        reportStats();
+        notifyObservers();
+    }
+
+    /**
+     * Add an observer to be told about the field after every step.
+     * @param observer The observer to add.
+     */
+    public void addObserver(SimulationObserver observer)
+    {
+        observers.add(observer);
+    }
+
+    /**
+     * Set the pause between steps of simulate.
+     * @param milliseconds The pause in milliseconds, or 0 to run unthrottled.
+     */
+    public void setDelay(int milliseconds)
+    {
+        delay = milliseconds;
+    }
+
+    /**
+     * Scale how densely the field is populated by the next reset.
+     * @param density The factor to multiply each creation probability
+     *                by; 1 is the usual population.
+     */
+    public void setDensity(double density)
+    {
+        this.density = density;
+    }
+
+    /**
+     * Change the probabilities of the simulation. The creation
+     * probabilities are used by the next reset, the others from the
+     * next step on.
+     * @param parameters The new probabilities.
+     */
+    public void setParameters(Parameters parameters)
+    {
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return The probabilities of the simulation.
+     */
+    public Parameters getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * Change which species eat which, from the next step on.
+     * @param foodWeb The new food web.
+     */
+    public void setFoodWeb(FoodWeb foodWeb)
+    {
+        this.foodWeb = foodWeb;
+    }
+
+    /**
+     * @return Which species eat which in the simulation.
+     */
+    public FoodWeb getFoodWeb()
+    {
+        if(foodWeb == null) {
+            foodWeb = FoodWeb.getDefault();
+        }
+        return foodWeb;
+    }
+
+    /**
+     * @return The seed this simulation's random streams are derived from.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Choose how the organisms are advanced each step.
+     * The default engine updates them one at a time on the calling thread.
+     * @param engine The step engine to use from the next step on.
+     */
+    public void setStepEngine(StepEngine engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+     * Choose where the population statistics are recorded. The sink is
+     * given the current state straight away and then every step.
+     * The previous sink is not closed.
+     * @param stats The sink to record to.
+     */
+    public void setStatsSink(StatsSink stats)
+    {
+        this.stats = stats;
+        reportStats();
     }
-    
 
     /**
      * Get the current hour of the simulation
@@ -153,56 +359,68 @@ public class Simulator
 
     /**
      * Randomly populate the field with barracudas, sharks, fish and plants.
+     * Each cell is given the first species, in the order species.txt
+     * lists them, whose creation probability comes up.
+     * Rather than trying every cell, each chunk of the field draws the
+     * gaps between the cells that get an organism, so a sparse ocean is
+     * populated in time proportional to what is placed in it.
      * Called at start and reset
      */
     private void populate()
     {
-        Organism.setSimulator(this);
         Random rand = Randomizer.getRandom();
         field.clear();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Location location = new Location(row, col);
-                
-                if(rand.nextDouble() <= SHARK_CREATION_PROBABILITY) {
-                    Shark shark = new Shark(true, location);
-                    field.placeOrganism(shark, location);
-                }
-                else if(rand.nextDouble() <= BARRACUDA_CREATION_PROBABILITY) {
-                    Barracuda barracuda = new Barracuda(true, location);
-                    field.placeOrganism(barracuda, location);
-                }
-                else if(rand.nextDouble() <= TUNA_CREATION_PROBABILITY) {
-                    Tuna tuna = new Tuna(true, location);
-                    field.placeOrganism(tuna, location);
-                }
-                else if(rand.nextDouble() <= GOLDFISH_CREATION_PROBABILITY) {
-                    Goldfish goldfish = new Goldfish(true, location);
-                    field.placeOrganism(goldfish, location);
-                }
-                else if(rand.nextDouble() <= PARROTFISH_CREATION_PROBABILITY) {
-                    Parrotfish parrotfish = new Parrotfish(true, location);
-                    field.placeOrganism(parrotfish, location);
-                }
-                else if(rand.nextDouble() <= ALGAE_CREATION_PROBABILITY) {
-                    Algae algae = new Algae(location);
-                    field.placeOrganism(algae, location);
+        // The chance of a cell getting each species or one before it.
+        // A species only gets the cells that the ones before it left.
+        Species[] species = Species.values();
+        double[] cumulative = new double[species.length];
+        double total = 0;
+        double empty = 1;
+        for(int s = 0; s < species.length; s++) {
+            double chance = Math.min(1, parameters.getCreationProbability(species[s]) * density);
+            total += empty * chance;
+            cumulative[s] = total;
+            empty *= 1 - chance;
+        }
+        if(total <= 0) {
+            return;
+        }
+        double logEmpty = total < 1 ? Math.log(1 - total) : Double.NEGATIVE_INFINITY;
+        for(int c = 0; c < field.getChunkCount(); c++) {
+            // Each chunk is populated from its own stream.
+            Randomizer.select(seed, 0, c);
+            int index = c * Field.CHUNK_SIZE - 1;
+            int end = index + Math.min(Field.CHUNK_SIZE, field.getCellCount() - c * Field.CHUNK_SIZE);
+            while(true) {
+                // The number of empty cells before the next organism.
+                double gap = Math.floor(Math.log(1 - rand.nextDouble()) / logEmpty);
+                if(gap >= end - index) {
+                    break;
                 }
-                else if(rand.nextDouble() <= SEAWEED_CREATION_PROBABILITY) {
-                    Seaweed seaweed = new Seaweed(location);
-                    field.placeOrganism(seaweed, location);
+                index += 1 + (int) gap;
+                double pick = rand.nextDouble() * total;
+                int s = 0;
+                while(cumulative[s] <= pick) {
+                    s++;
                 }
-                // else leave the location empty.
+                field.placeOrganism(species[s].create(true, field.locationOf(index)), index);
             }
         }
     }
 
     /**
      * Report on the number of each type of animal in the field.
+     * A restored field is only handed to the sink as the starting point
+     * of the steps that follow.
      */
     public void reportStats()
     {
-        field.fieldStats();
+        if(restored) {
+            stats.resume(step, field);
+        }
+        else {
+            stats.record(step, field);
+        }
     }
     
     /**
@@ -219,13 +437,101 @@ public class Simulator
         }
     }
 
+    /**
+     * Tell every observer about the current state of the field.
+     */
+    private void notifyObservers()
+    {
+        for(SimulationObserver observer : observers) {
+            observer.showStatus(step, field);
+        }
+    }
+
     /**
      * Main method to run the simulation.
-     * @param args Command line arguments (not used).
+     * Options: --depth N, --width N, --steps N, --seed N, --headless,
+     * --csv FILE and --binary FILE to write the population statistics
+     * to files instead of printing them, --restore FILE to start from a
+     * checkpoint, --checkpoint FILE to save one after the last step and
+     * --replay FILE to record a log that a Replayer can step through.
+     * --food-web FILE reads which species eat which from a file instead
+     * of foodweb.txt. Without --seed every run starts from a different seed.
+     * @param args Command line arguments.
+     * @throws IOException If a statistics file cannot be written, or the
+     *                     food web cannot be read.
      */
-    public static void main(String[] args)
+    public static void main(String[] args) throws IOException
     {
-        Simulator simulator = new Simulator();
-        simulator.runLongSimulation();
+        int depth = DEFAULT_DEPTH;
+        int width = DEFAULT_WIDTH;
+        int steps = DEFAULT_STEPS;
+        boolean headless = false;
+        Path csv = null;
+        Path binary = null;
+        Path restore = null;
+        Path checkpoint = null;
+        Path replay = null;
+        Path foodWeb = null;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--depth" -> depth = Integer.parseInt(argument(args, ++i));
+                case "--width" -> width = Integer.parseInt(argument(args, ++i));
+                case "--steps" -> steps = Integer.parseInt(argument(args, ++i));
+                case "--seed" -> Randomizer.setSeed(Long.parseLong(argument(args, ++i)));
+                case "--headless" -> headless = true;
+                case "--csv" -> csv = Path.of(argument(args, ++i));
+                case "--binary" -> binary = Path.of(argument(args, ++i));
+                case "--restore" -> restore = Path.of(argument(args, ++i));
+                case "--checkpoint" -> checkpoint = Path.of(argument(args, ++i));
+                case "--replay" -> replay = Path.of(argument(args, ++i));
+                case "--food-web" -> foodWeb = Path.of(argument(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        Simulator simulator = new Simulator(depth, width, headless);
+        if(foodWeb != null) {
+            simulator.setFoodWeb(FoodWeb.load(foodWeb));
+        }
+        ReplayRecorder recorder = null;
+        if(replay != null) {
+            recorder = new ReplayRecorder(replay, simulator);
+            simulator.addObserver(recorder);
+        }
+        if(restore != null) {
+            simulator.restore(restore);
+        }
+        if(csv != null || binary != null) {
+            StatsWriter writer = new StatsWriter(csv, binary);
+            simulator.setStatsSink(writer);
+            simulator.simulate(steps);
+            writer.close();
+            if(writer.getDropped() > 0) {
+                System.err.println("Statistics for " + writer.getDropped() +
+                                   " steps were dropped.");
+            }
+        }
+        else {
+            simulator.simulate(steps);
+        }
+        if(checkpoint != null) {
+            simulator.saveCheckpoint(checkpoint);
+        }
+        if(recorder != null) {
+            recorder.close();
+        }
+    }
+
+    /**
+     * Return the value following an option on the command line.
+     * @param args Command line arguments.
+     * @param i The position of the value.
+     * @return The value.
+     */
+    private static String argument(String[] args, int i)
+    {
+        if(i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 import java.awt.*;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.*;
 
 /**
@@ -9,22 +11,29 @@ import javax.swing.*;
  * representing its contents. It uses a default background color.
  * Colors for each type of species can be defined using the
  * setColor method.
+ * The field is drawn one pixel per cell into an image, which is
+ * scaled up when it is copied to the screen.
+ *
+ * The simulation thread never touches Swing. After each step it copies
+ * the field into a FieldSnapshot and leaves it in a single slot,
+ * replacing any snapshot the display has not taken yet. A timer on the
+ * event dispatch thread takes the latest snapshot at up to FRAME_RATE
+ * frames a second and draws it, so a fast simulation simply skips
+ * frames instead of waiting for the display.
  * 
  * @author David J. Barnes, Michael Kölling, Aman H, Chris M
  * @version 7.0
  */
 
 
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulationObserver
 {
 
     private final Simulator simulator;
 
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
-
-    // Color used for objects that have no defined color.
-    private static final Color UNKNOWN_COLOR = Color.gray;
+    private static final int EMPTY_RGB = EMPTY_COLOR.getRGB();
 
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
@@ -36,8 +45,16 @@ public class SimulatorView extends JFrame
     public final String WEATHER_PREFIX = "Weather: ";
     private final JLabel weatherLabel;
     
-    // A map for storing colors for participants in the simulation
-    private final Map<Class<?>, Color> colors;
+    // The number of frames drawn a second, at most.
+    public static final int FRAME_RATE = 30;
+
+    // The packed RGB color of each FieldSnapshot cell code: empty, then
+    // each species followed by its infected shade.
+    private final int[] palette = new int[1 + Species.values().length * 2];
+    // The latest snapshot, waiting to be drawn.
+    private final AtomicReference<FieldSnapshot> latest = new AtomicReference<>();
+    // A snapshot that is no longer needed, for the simulation to reuse.
+    private final AtomicReference<FieldSnapshot> spare = new AtomicReference<>();
     // A statistics object computing and storing simulation information
     private final FieldStats stats;
 
@@ -49,16 +66,11 @@ public class SimulatorView extends JFrame
     public SimulatorView(int height, int width, Simulator simulator)
     {
         stats = new FieldStats();
-        colors = new LinkedHashMap<>();
         this.simulator = simulator;
-        setColor(Goldfish.class, Color.orange);
-        setColor(Shark.class, Color.blue);
-        setColor(Barracuda.class, Color.red);
-        setColor(Tuna.class, Color.magenta);
-        setColor(Parrotfish.class, Color.pink);
-        
-        setColor(Algae.class, Color.green);
-        setColor(Seaweed.class, Color.red);
+        palette[FieldSnapshot.EMPTY] = EMPTY_RGB;
+        for(Species species : Species.values()) {
+            setColor(species, new Color(species.getColour()));
+        }
 
 
         setTitle("Ocean Simulation");
@@ -88,31 +100,19 @@ public class SimulatorView extends JFrame
 
         pack();
         setVisible(true);
+        new Timer(1000 / FRAME_RATE, e -> drawLatest()).start();
     }
     
     /**
-     * Define a color to be used for a given class of animal.
-     * @param animalClass The animal's Class object.
-     * @param color The color to be used for the given class.
-     */
-    public void setColor(Class<?> organismClass, Color color)
-    {
-        colors.put(organismClass, color);
-    }
-
-    /**
-     * @return The color to be used for a given class of animal.
+     * Define a color to be used for a given species.
+     * Infected animals are shown in a darker shade of it.
+     * @param species The species.
+     * @param color The color to be used for the given species.
      */
-    private Color getColor(Class<?> organismClass)
+    public void setColor(Species species, Color color)
     {
-        Color col = colors.get(organismClass);
-        if(col == null) {
-            // no color defined for this class
-            return UNKNOWN_COLOR;
-        }
-        else {
-            return col;
-        }
+        palette[1 + species.ordinal() * 2] = color.getRGB();
+        palette[2 + species.ordinal() * 2] = getInfected(color).getRGB();
     }
 
     private Color getInfected(Color color) {
@@ -125,45 +125,63 @@ public class SimulatorView extends JFrame
 
     /**
      * Show the current status of the field.
+     * Called on the simulation thread: the field is copied into a
+     * snapshot for the display to pick up, replacing any snapshot it
+     * has not drawn yet.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
+    @Override
     public void showStatus(int step, Field field)
     {
-        if(!isVisible()) {
-            setVisible(true);
+        FieldSnapshot snapshot = spare.getAndSet(null);
+        if(snapshot == null || !snapshot.fits(field)) {
+            snapshot = new FieldSnapshot(field.getDepth(), field.getWidth());
         }
-            
-        stepLabel.setText(STEP_PREFIX + step);
-        stats.reset();
-        
-        fieldView.preparePaint();
-
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getOrganismAt(new Location(row, col));
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
+        snapshot.capture(step, field, simulator.getTimeOfDay(),
+                         simulator.getWeather().getCondition(),
+                         stats.getPopulationDetails(field));
+        FieldSnapshot skipped = latest.getAndSet(snapshot);
+        if(skipped != null) {
+            spare.set(skipped);
+        }
+    }
 
-                    Color state = getColor(animal.getClass());
+    /**
+     * Draw the latest snapshot, if there is a new one.
+     * Called on the event dispatch thread.
+     */
+    private void drawLatest()
+    {
+        FieldSnapshot snapshot = latest.getAndSet(null);
+        if(snapshot == null) {
+            return;
+        }
+        stepLabel.setText(STEP_PREFIX + snapshot.getStep());
 
-                    if (animal instanceof Animal a && a.isInfected()) {
-                        state = getInfected(state);
-                    }
-                    fieldView.drawMark(col, row, state);
-                }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
+        byte[] cells = snapshot.getCells();
+        int[] pixels = fieldView.getPixels();
+        int width = snapshot.getWidth();
+        // The rows that have changed since the last frame.
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = -1;
+        for(int index = 0; index < pixels.length; index++) {
+            int color = palette[cells[index]];
+            if(pixels[index] != color) {
+                pixels[index] = color;
+                int row = index / width;
+                firstRow = Math.min(firstRow, row);
+                lastRow = row;
             }
         }
-        stats.countFinished();
-
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
-        timeLabel.setText(TIME_PREFIX + formatTime(simulator.getTimeOfDay()));
-        weatherLabel.setText(WEATHER_PREFIX + simulator.getWeather().getCondition());
-        fieldView.repaint();
 
+        population.setText(POPULATION_PREFIX + snapshot.getPopulation());
+        timeLabel.setText(TIME_PREFIX + formatTime(snapshot.getTimeOfDay()));
+        weatherLabel.setText(WEATHER_PREFIX + snapshot.getWeather());
+        if(lastRow >= 0) {
+            fieldView.repaintRows(firstRow, lastRow);
+        }
+        spare.set(snapshot);
     }
 
     private String formatTime(int hour) {
@@ -192,10 +210,10 @@ public class SimulatorView extends JFrame
         private final int GRID_VIEW_SCALING_FACTOR = 6;
 
         private final int gridWidth, gridHeight;
-        private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // The field, one pixel per cell.
+        private final BufferedImage fieldImage;
+        // The pixels of the image, as packed RGB values.
+        private final int[] pixels;
 
         /**
          * Create a new FieldView component.
@@ -204,7 +222,9 @@ public class SimulatorView extends JFrame
         {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
+            fieldImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) fieldImage.getRaster().getDataBuffer()).getData();
+            Arrays.fill(pixels, EMPTY_RGB);
         }
 
         /**
@@ -218,52 +238,38 @@ public class SimulatorView extends JFrame
         }
 
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * Return the pixels of the field image, one per cell in the
+         * order of the field's cell indices. Changes show at the next
+         * repaint.
+         * @return The packed RGB value of every cell.
          */
-        public void preparePaint()
+        public int[] getPixels()
         {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
-                }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
-                }
-            }
+            return pixels;
         }
-        
+
         /**
-         * Paint on grid location on this field in a given color.
+         * Ask for the part of the component showing the given rows of
+         * the field to be redisplayed.
+         * @param firstRow The first row that has changed.
+         * @param lastRow The last row that has changed.
          */
-        public void drawMark(int x, int y, Color color)
+        public void repaintRows(int firstRow, int lastRow)
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            int height = getHeight();
+            int top = firstRow * height / gridHeight;
+            int bottom = ((lastRow + 1) * height + gridHeight - 1) / gridHeight;
+            repaint(0, top, getWidth(), bottom - top);
         }
 
         /**
          * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * field image to screen, scaled to the size of the component.
          */
+        @Override
         public void paintComponent(Graphics g)
         {
-            if(fieldImage != null) {
-                Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
-                }
-                else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
-                }
-            }
+            g.drawImage(fieldImage, 0, 0, getWidth(), getHeight(), null);
         }
     }
 }
@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The species that can live in the Sealife simulation.
+ * Every organism reports its species, so code that only needs to
+ * classify an occupant can compare species instead of testing classes.
+ *
+ * The species are data, not code: they are read from species.txt,
+ * which is looked for on the class path, i.e. in the project directory,
+ * one species per line (see that file for the format). Each has a name,
+ * the colour it is drawn in, its default creation probability and, for
+ * an animal, its row of AnimalTraits, which drives its behaviour. Every
+ * animal is an Animal and every plant a Plant made from its species'
+ * row, so a new species that behaves like the others with different
+ * numbers only needs a line in species.txt and its meals in
+ * foodweb.txt. If species.txt is not there, a built-in copy of the
+ * same species is used instead.
+ *
+ * Like an enum, the species are a fixed set of instances, numbered by
+ * ordinal in the order they are listed, with values and valueOf.
+ *
+ * @author Aman H, Chris M
+ */
+public final class Species
+{
+    // The file the species are read from.
+    private static final String FILE = "species.txt";
+    // The species when the file is missing.
+    private static final String BUILT_IN =
+        "SHARK       animal  0000ff  0.02    6  150  0.8   2  25  ALL   ALL   HUNGRY BLIND_IN_FOG NEEDS_MATE BREEDS_BEFORE_EATING\n" +
+        "BARRACUDA   animal  ff0000  0.02    6  150  0.8   2  25  ALL   ALL   HUNGRY BLIND_IN_FOG NEEDS_MATE BREEDS_BEFORE_EATING\n" +
+        "TUNA        animal  ff00ff  0.06    3  80   0.7   5  0   5-20  ALL   NEEDS_MATE CLAIMS_BEFORE_BREEDING\n" +
+        "GOLDFISH    animal  ffc800  0.025   5  40   0.01  4  0   ALL   19-5  CAN_STAY\n" +
+        "PARROTFISH  animal  ffafaf  0.025   5  40   0.05  4  0   19-5  ALL   CAN_STAY STAYS_AFTER_BIRTH\n" +
+        "ALGAE       plant   00ff00  0.0175\n" +
+        "SEAWEED     plant   ff0000  0.0175\n";
+    // Cell types hold a species code from 1 up in Field.SPECIES_BITS.
+    private static final int MAX_SPECIES = Field.SPECIES_BITS;
+
+    // Every species, by ordinal.
+    private static final Species[] ALL = load();
+
+    // The species' name, as used in species.txt and parameter names.
+    private final String name;
+    // The species' number, from 0 in the order they are listed.
+    private final int ordinal;
+    // The name shown in statistics.
+    private final String displayName;
+    // The colour the species is drawn in, as packed RGB.
+    private final int colour;
+    // The default probability of a cell starting with the species.
+    private final double creationProbability;
+    // How members of this species behave, or null if they are plants.
+    private final AnimalTraits traits;
+
+    /**
+     * @param name The species' name, e.g. "SHARK".
+     * @param ordinal The species' number.
+     * @param colour The colour it is drawn in, as packed RGB.
+     * @param creationProbability The default creation probability.
+     * @param traits How members of the species behave, or null for plants.
+     */
+    private Species(String name, int ordinal, int colour, double creationProbability,
+                    AnimalTraits traits)
+    {
+        this.name = name;
+        this.ordinal = ordinal;
+        this.displayName = name.charAt(0) + name.substring(1).toLowerCase();
+        this.colour = colour;
+        this.creationProbability = creationProbability;
+        this.traits = traits;
+    }
+
+    /**
+     * Read the species from the class path, or from the built-in table
+     * if the file is not there.
+     * @return The species, by ordinal.
+     * @throws IllegalStateException If species.txt cannot be read or
+     *                               does not describe the species.
+     */
+    private static Species[] load()
+    {
+        InputStream stream = Species.class.getResourceAsStream("/" + FILE);
+        try(BufferedReader in = stream != null
+                ? new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))
+                : new BufferedReader(new StringReader(BUILT_IN))) {
+            return read(in, stream != null ? FILE : "the built-in species");
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Cannot read the species: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the species, one per line.
+     * @param in The lines to read.
+     * @param source The name of what is read, for error messages.
+     * @return The species, by ordinal.
+     * @throws IOException If the lines cannot be read or do not describe
+     *                     the species.
+     */
+    private static Species[] read(BufferedReader in, String source) throws IOException
+    {
+        List<Species> species = new ArrayList<>();
+        String line;
+        int number = 0;
+        while((line = in.readLine()) != null) {
+            number++;
+            line = stripComment(line);
+            if(line.isEmpty()) {
+                continue;
+            }
+            String where = source + ":" + number + ": ";
+            String[] words = line.split("\\s+");
+            if(words.length < 4) {
+                throw new IOException(where + "expected NAME KIND COLOUR CREATION.");
+            }
+            String name = words[0];
+            for(Species other : species) {
+                if(other.name.equals(name)) {
+                    throw new IOException(where + name + " is listed twice.");
+                }
+            }
+            if(species.size() == MAX_SPECIES) {
+                throw new IOException(where + "there can be at most " + MAX_SPECIES + " species.");
+            }
+            int colour = colourOf(words[2], where);
+            double creation = probabilityOf(words[3], where);
+            AnimalTraits traits;
+            if(words[1].equals("plant") && words.length == 4) {
+                traits = null;
+            }
+            else if(words[1].equals("animal") && words.length >= 11) {
+                traits = traitsOf(words, where);
+            }
+            else {
+                throw new IOException(where + "expected a plant with 4 fields or an animal with at least 11.");
+            }
+            species.add(new Species(name, species.size(), colour, creation, traits));
+        }
+        if(species.isEmpty()) {
+            throw new IOException(source + " lists no species.");
+        }
+        return species.toArray(new Species[0]);
+    }
+
+    /**
+     * Remove a comment from a line.
+     * @param line The line.
+     * @return The line up to any '#', trimmed.
+     */
+    private static String stripComment(String line)
+    {
+        int comment = line.indexOf('#');
+        return (comment >= 0 ? line.substring(0, comment) : line).trim();
+    }
+
+    /**
+     * @param word A colour as rrggbb in hex.
+     * @param where The line it is on, for error messages.
+     * @return The colour as packed RGB.
+     * @throws IOException If the word is not a colour.
+     */
+    private static int colourOf(String word, String where) throws IOException
+    {
+        if(word.length() != 6 || !word.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IOException(where + "bad colour " + word + "; expected rrggbb in hex.");
+        }
+        return Integer.parseInt(word, 16);
+    }
+
+    /**
+     * @param word A probability.
+     * @param where The line it is on, for error messages.
+     * @return The probability.
+     * @throws IOException If the word is not a number from 0 to 1.
+     */
+    private static double probabilityOf(String word, String where) throws IOException
+    {
+        double probability = numberOf(word, where);
+        if(!(probability >= 0 && probability <= 1)) {
+            throw new IOException(where + "the probability " + word + " is not between 0 and 1.");
+        }
+        return probability;
+    }
+
+    /**
+     * @param word A number.
+     * @param where The line it is on, for error messages.
+     * @return The number.
+     * @throws IOException If the word is not a number.
+     */
+    private static double numberOf(String word, String where) throws IOException
+    {
+        try {
+            return Double.parseDouble(word);
+        }
+        catch(NumberFormatException e) {
+            throw new IOException(where + "bad number " + word + ".");
+        }
+    }
+
+    /**
+     * @param word A whole number.
+     * @param where The line it is on, for error messages.
+     * @return The number.
+     * @throws IOException If the word is not a whole number.
+     */
+    private static int wholeNumberOf(String word, String where) throws IOException
+    {
+        try {
+            return Integer.parseInt(word);
+        }
+        catch(NumberFormatException e) {
+            throw new IOException(where + "bad whole number " + word + ".");
+        }
+    }
+
+    /**
+     * @param word Hours, as ALL or FROM-TO.
+     * @param where The line they are on, for error messages.
+     * @return The hours as a mask; see AnimalTraits.hours.
+     * @throws IOException If the word does not give hours.
+     */
+    private static int hoursOf(String word, String where) throws IOException
+    {
+        if(word.equals("ALL")) {
+            return AnimalTraits.ALL_DAY;
+        }
+        int dash = word.indexOf('-');
+        if(dash < 0) {
+            throw new IOException(where + "bad hours " + word + "; expected ALL or FROM-TO.");
+        }
+        try {
+            return AnimalTraits.hours(wholeNumberOf(word.substring(0, dash), where),
+                                      wholeNumberOf(word.substring(dash + 1), where));
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(where + e.getMessage());
+        }
+    }
+
+    /**
+     * Read an animal's traits from its line.
+     * @param words The words of the line.
+     * @param where The line, for error messages.
+     * @return The traits.
+     * @throws IOException If the words do not give traits.
+     */
+    private static AnimalTraits traitsOf(String[] words, String where) throws IOException
+    {
+        int flags = 0;
+        for(int i = 11; i < words.length; i++) {
+            int flag = AnimalTraits.flagNamed(words[i]);
+            if(flag == 0) {
+                throw new IOException(where + "unknown flag " + words[i] + ".");
+            }
+            flags |= flag;
+        }
+        try {
+            return new AnimalTraits(wholeNumberOf(words[4], where), wholeNumberOf(words[5], where),
+                                    numberOf(words[6], where), wholeNumberOf(words[7], where),
+                                    wholeNumberOf(words[8], where), hoursOf(words[9], where),
+                                    hoursOf(words[10], where), flags);
+        }
+        catch(IllegalArgumentException e) {
+            throw new IOException(where + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Every species, in the order they are listed.
+     */
+    public static Species[] values()
+    {
+        return ALL.clone();
+    }
+
+    /**
+     * @param name A species' name, e.g. "SHARK".
+     * @return The species with that name.
+     * @throws IllegalArgumentException If there is no such species.
+     */
+    public static Species valueOf(String name)
+    {
+        for(Species species : ALL) {
+            if(species.name.equals(name)) {
+                return species;
+            }
+        }
+        throw new IllegalArgumentException("No species " + name + ".");
+    }
+
+    /**
+     * @return The species' number, from 0 in the order they are listed.
+     */
+    public int ordinal()
+    {
+        return ordinal;
+    }
+
+    /**
+     * @return The species' name, e.g. "SHARK".
+     */
+    public String name()
+    {
+        return name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+
+    /**
+     * @return The name shown in statistics, e.g. "Shark".
+     */
+    public String getName()
+    {
+        return displayName;
+    }
+
+    /**
+     * @return true if members of this species are animals.
+     */
+    public boolean isAnimal()
+    {
+        return traits != null;
+    }
+
+    /**
+     * @return How members of this animal species behave, or null if
+     *         the species is a plant.
+     */
+    public AnimalTraits getTraits()
+    {
+        return traits;
+    }
+
+    /**
+     * @return The colour the species is drawn in, as packed RGB.
+     */
+    public int getColour()
+    {
+        return colour;
+    }
+
+    /**
+     * @return The default probability of a cell starting with a member
+     *         of this species; see Parameters.
+     */
+    public double getCreationProbability()
+    {
+        return creationProbability;
+    }
+
+    /**
+     * Create a new-born member of this species, e.g. to be given a
+     * saved state.
+     * @param location Where the organism is.
+     * @return The organism.
+     */
+    public Organism create(Location location)
+    {
+        return create(false, location);
+    }
+
+    /**
+     * Create a member of this species.
+     * @param randomAge If true, an animal is given a random age and
+     *                  food level, as when the field is populated;
+     *                  otherwise it is a new born. Plants have no age.
+     * @param location Where the organism is.
+     * @return The organism.
+     */
+    public Organism create(boolean randomAge, Location location)
+    {
+        return isAnimal() ? new Animal(this, randomAge, location) : new Plant(this, location);
+    }
+}
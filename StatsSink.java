@@ -0,0 +1,36 @@
+/**
+ * A destination for the population statistics of a simulation.
+ * The simulator hands the field to its sink after it is reset and
+ * after every step, and tells it when the simulation is restored.
+ * A sink must not keep the field: it is reused once the next step
+ * starts.
+ *
+ * @author Aman H, Chris M
+ */
+public interface StatsSink
+{
+    /**
+     * Record the statistics of a step.
+     * @param step The step that has just been made, 0 after a reset.
+     * @param field The state of the field after the step.
+     */
+    void record(int step, Field field);
+
+    /**
+     * Take up recording from a state the simulation was restored to
+     * rather than stepped to. Nothing is recorded for the restored step
+     * itself: the field's counts of births and infections are those of
+     * the restore, not of a step. The populations are the starting point
+     * of the next step recorded.
+     * @param step The step restored.
+     * @param field The restored field.
+     */
+    default void resume(int step, Field field)
+    {
+    }
+
+    /**
+     * Finish recording, writing out anything still held back.
+     */
+    void close();
+}
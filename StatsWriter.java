@@ -0,0 +1,392 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A statistics sink that writes a time series of the population to
+ * files on a background thread.
+ *
+ * For every step and species it records the number alive, the number
+ * born (including plants grown), the number that died (including
+ * plants overgrown) and the number infected. The simulation thread
+ * copies these into a bounded ring buffer and returns at once; it never
+ * waits for the disk. If the writer falls so far behind that the buffer
+ * is full, the step is dropped and counted (see getDropped) rather
+ * than holding up the simulation.
+ *
+ * The writer thread stores the rows as CSV, as a compact binary
+ * columnar file, or both, through FileChannels with large buffers.
+ * The binary file starts with a header:
+ *   int magic ("SLST"), int version, int species count, and for each
+ *   species a short name length followed by its name in UTF-8;
+ * followed by blocks of up to BLOCK_ROWS rows:
+ *   int row count, then each column in turn as that many ints.
+ * The columns are the step, then for each species alive, born, died
+ * and infected. All numbers are little-endian.
+ *
+ * @author Aman H, Chris M
+ */
+public class StatsWriter implements StatsSink
+{
+    // The default number of steps the ring buffer holds.
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    // The number of rows in a block of the binary file.
+    public static final int BLOCK_ROWS = 4096;
+    // Identifies the binary format: "SLST".
+    private static final int MAGIC = 0x534c5354;
+    private static final int VERSION = 1;
+    // The size of the buffer CSV text is collected in, in bytes.
+    private static final int CSV_BUFFER_SIZE = 1 << 20;
+    // How long the writer sleeps when there is nothing to write.
+    private static final long IDLE_NANOS = 1_000_000;
+
+    // The species recorded, in column order.
+    private final Species[] species = Species.values();
+    // The number of ints in a row.
+    private final int columns = 1 + 4 * species.length;
+    // The ring buffer of rows, one after another.
+    private final int[] ring;
+    // The number of rows the ring buffer holds.
+    private final int capacity;
+    // The number of rows recorded and the number written. Only the
+    // simulation thread advances head and only the writer advances tail.
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    // The number of steps dropped because the buffer was full.
+    private final AtomicLong dropped = new AtomicLong();
+    // The population of each species at the last step recorded, from
+    // which deaths are worked out.
+    private final int[] lastAlive = new int[species.length];
+
+    // The files written, either of which may be null.
+    private final FileChannel csv, binary;
+    // Text waiting to be written to the CSV file.
+    private final ByteBuffer csvBuffer;
+    // The rows of the binary block being filled, column by column.
+    private final int[] block;
+    // The number of rows in the block.
+    private int blockRows;
+    // The binary block being written.
+    private final ByteBuffer blockBuffer;
+
+    // The background thread writing the files.
+    private final Thread writer;
+    // Whether close has been called.
+    private volatile boolean closed;
+    // The first error met by the writer, reported by close.
+    private volatile IOException failure;
+
+    /**
+     * Create a writer with the default buffer capacity and start it.
+     * @param csvPath The CSV file to write, or null for none.
+     * @param binaryPath The binary file to write, or null for none.
+     * @throws IOException If a file cannot be opened.
+     */
+    public StatsWriter(Path csvPath, Path binaryPath) throws IOException
+    {
+        this(csvPath, binaryPath, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a writer and start it.
+     * @param csvPath The CSV file to write, or null for none.
+     * @param binaryPath The binary file to write, or null for none.
+     * @param capacity The number of steps the ring buffer holds.
+     * @throws IOException If a file cannot be opened.
+     */
+    public StatsWriter(Path csvPath, Path binaryPath, int capacity) throws IOException
+    {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1.");
+        }
+        this.capacity = capacity;
+        ring = new int[capacity * columns];
+        csv = csvPath != null ? open(csvPath) : null;
+        binary = binaryPath != null ? open(binaryPath) : null;
+        csvBuffer = ByteBuffer.allocateDirect(CSV_BUFFER_SIZE);
+        block = new int[BLOCK_ROWS * columns];
+        blockBuffer = ByteBuffer.allocateDirect(4 + 4 * block.length).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeaders();
+        writer = new Thread(this::run, "stats-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Open a file for writing, replacing anything already there.
+     * @param path The file.
+     * @return The channel to write it through.
+     * @throws IOException If the file cannot be opened.
+     */
+    private static FileChannel open(Path path) throws IOException
+    {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Copy the statistics of a step into the ring buffer.
+     * Never blocks: if the buffer is full the step is dropped.
+     * @param step The step that has just been made.
+     * @param field The state of the field after the step.
+     */
+    @Override
+    public void record(int step, Field field)
+    {
+        long row = head.get();
+        if(row - tail.get() >= capacity) {
+            // The deaths of the next row recorded are worked out from
+            // this step's populations, even though this row is lost.
+            for(int s = 0; s < species.length; s++) {
+                lastAlive[s] = field.getCount(species[s]);
+            }
+            dropped.incrementAndGet();
+            return;
+        }
+        int offset = (int) (row % capacity) * columns;
+        ring[offset++] = step;
+        for(int s = 0; s < species.length; s++) {
+            int alive = field.getCount(species[s]);
+            int born = field.getBirths(species[s]);
+            ring[offset++] = alive;
+            ring[offset++] = born;
+            ring[offset++] = lastAlive[s] + born - alive;
+            ring[offset++] = field.getInfections(species[s]);
+            lastAlive[s] = alive;
+        }
+        // Publish the row to the writer.
+        head.lazySet(row + 1);
+    }
+
+    /**
+     * Take the populations of a restored field as those of the last
+     * step recorded, from which the deaths of the next step are worked
+     * out. No row is written for the restored step.
+     * @param step The step restored.
+     * @param field The restored field.
+     */
+    @Override
+    public void resume(int step, Field field)
+    {
+        for(int s = 0; s < species.length; s++) {
+            lastAlive[s] = field.getCount(species[s]);
+        }
+    }
+
+    /**
+     * Return the number of steps dropped because the writer fell behind.
+     * @return The number of steps not written.
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * Write the remaining rows, stop the writer thread and close the files.
+     * @throws UncheckedIOException If a file could not be written.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if(csv != null) {
+                csv.close();
+            }
+            if(binary != null) {
+                binary.close();
+            }
+        }
+        catch(IOException e) {
+            if(failure == null) {
+                failure = e;
+            }
+        }
+        if(failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * The writer thread: take rows from the ring buffer until closed.
+     */
+    private void run()
+    {
+        try {
+            while(true) {
+                // Read the flag before draining, so that no row recorded
+                // before close is left behind.
+                boolean finishing = closed;
+                long end = head.get();
+                long row = tail.get();
+                for(; row < end; row++) {
+                    writeRow((int) (row % capacity) * columns);
+                    tail.lazySet(row + 1);
+                }
+                if(finishing) {
+                    break;
+                }
+                if(row == end) {
+                    flushCsv();
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+            }
+            flushBlock();
+            flushCsv();
+        }
+        catch(IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Write the column headings of the CSV file and the header of the
+     * binary file.
+     * @throws IOException If a file cannot be written.
+     */
+    private void writeHeaders() throws IOException
+    {
+        if(csv != null) {
+            StringBuilder line = new StringBuilder("step");
+            for(Species s : species) {
+                String name = s.getName();
+                line.append(',').append(name).append("_alive")
+                    .append(',').append(name).append("_born")
+                    .append(',').append(name).append("_died")
+                    .append(',').append(name).append("_infected");
+            }
+            line.append('\n');
+            csvBuffer.put(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if(binary != null) {
+            byte[][] names = new byte[species.length][];
+            int size = 4 * 3;
+            for(int s = 0; s < species.length; s++) {
+                names[s] = species[s].getName().getBytes(StandardCharsets.UTF_8);
+                size += 2 + names[s].length;
+            }
+            ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(species.length);
+            for(byte[] name : names) {
+                header.putShort((short) name.length).put(name);
+            }
+            header.flip();
+            writeFully(binary, header);
+        }
+    }
+
+    /**
+     * Add a row from the ring buffer to the CSV text and the binary block.
+     * @param offset The position of the row in the ring buffer.
+     * @throws IOException If a file cannot be written.
+     */
+    private void writeRow(int offset) throws IOException
+    {
+        if(csv != null) {
+            // A row is at most columns numbers of 11 characters plus separators.
+            if(csvBuffer.remaining() < columns * 12) {
+                flushCsv();
+            }
+            for(int c = 0; c < columns; c++) {
+                if(c > 0) {
+                    csvBuffer.put((byte) ',');
+                }
+                putDecimal(ring[offset + c]);
+            }
+            csvBuffer.put((byte) '\n');
+        }
+        if(binary != null) {
+            for(int c = 0; c < columns; c++) {
+                block[c * BLOCK_ROWS + blockRows] = ring[offset + c];
+            }
+            blockRows++;
+            if(blockRows == BLOCK_ROWS) {
+                flushBlock();
+            }
+        }
+    }
+
+    /**
+     * Append a number to the CSV text as decimal digits.
+     * @param value The number.
+     */
+    private void putDecimal(int value)
+    {
+        if(value < 0) {
+            csvBuffer.put((byte) '-');
+            value = -value;
+        }
+        int start = csvBuffer.position();
+        do {
+            csvBuffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while(value != 0);
+        // The digits were put least significant first; reverse them.
+        for(int i = start, j = csvBuffer.position() - 1; i < j; i++, j--) {
+            byte digit = csvBuffer.get(i);
+            csvBuffer.put(i, csvBuffer.get(j));
+            csvBuffer.put(j, digit);
+        }
+    }
+
+    /**
+     * Write the CSV text collected so far.
+     * @throws IOException If the file cannot be written.
+     */
+    private void flushCsv() throws IOException
+    {
+        if(csv != null && csvBuffer.position() > 0) {
+            csvBuffer.flip();
+            writeFully(csv, csvBuffer);
+            csvBuffer.clear();
+        }
+    }
+
+    /**
+     * Write the rows of the binary block, column by column.
+     * @throws IOException If the file cannot be written.
+     */
+    private void flushBlock() throws IOException
+    {
+        if(binary == null || blockRows == 0) {
+            return;
+        }
+        blockBuffer.clear();
+        blockBuffer.putInt(blockRows);
+        for(int c = 0; c < columns; c++) {
+            blockBuffer.asIntBuffer().put(block, c * BLOCK_ROWS, blockRows);
+            blockBuffer.position(blockBuffer.position() + 4 * blockRows);
+        }
+        blockBuffer.flip();
+        writeFully(binary, blockBuffer);
+        blockRows = 0;
+    }
+
+    /**
+     * Write the whole of a buffer to a channel.
+     * @param channel The channel.
+     * @param buffer The bytes to write.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * A strategy for advancing every organism in a field by one step.
+ * The simulator owns the fields and the clock; an engine only decides
+ * in what order, and on which threads, the organisms are updated.
+ *
+ * @author Aman H, Chris M
+ */
+public interface StepEngine
+{
+    /**
+     * Update every organism in the current field, building the next state.
+     * Each organism must draw its random numbers from its own stream,
+     * selected with context.select(id) before it is updated, and be
+     * given the context.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The cleared field the next state is built in.
+     */
+    void step(SimulationContext context, Field currentField, Field nextFieldState);
+}
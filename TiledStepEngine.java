@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A step engine that updates the field in parallel.
+ * The grid is split into square tiles which are coloured like a
+ * checkerboard with four colours, so that two tiles of the same colour
+ * are always at least one whole tile apart. The tiles of one colour are
+ * updated in parallel on a ForkJoinPool, one colour after another.
+ *
+ * An organism only reads and writes its own cell and the cells next to
+ * it, so everything a tile touches lies within the tile plus a one-cell
+ * halo. The halos of tiles of the same colour never overlap, which is
+ * why the tiles of a colour can be updated without any locking.
+ * Each tile is always updated in the same order and every organism
+ * draws from its own random stream, so the result does not depend on
+ * the number of threads.
+ *
+ * @author Aman H, Chris M
+ */
+public class TiledStepEngine implements StepEngine
+{
+    // The default width and height of a tile, in cells.
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    // The pool the tiles are updated on.
+    private final ForkJoinPool pool;
+    // The width and height of a tile, in cells.
+    private final int tileSize;
+    // The tiles of each colour, for the field size last stepped.
+    private final int[][] tilesByColour = new int[4][];
+    // The field size the tiles were computed for.
+    private int tiledDepth, tiledWidth;
+    // The number of tiles across the field.
+    private int tilesAcross;
+
+    /**
+     * Create an engine using the common pool and the default tile size.
+     */
+    public TiledStepEngine()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Create an engine.
+     * @param pool The pool to update the tiles on.
+     * @param tileSize The width and height of a tile. Must be at least 2,
+     *                 so that the halos of tiles of one colour cannot meet.
+     */
+    public TiledStepEngine(ForkJoinPool pool, int tileSize)
+    {
+        if(tileSize < 2) {
+            throw new IllegalArgumentException("Tiles must be at least 2 cells wide.");
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Update every organism in the current field, building the next state.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The cleared field the next state is built in.
+     */
+    @Override
+    public void step(SimulationContext context, Field currentField, Field nextFieldState)
+    {
+        if(currentField.getDepth() != tiledDepth || currentField.getWidth() != tiledWidth) {
+            buildTiles(currentField.getDepth(), currentField.getWidth());
+        }
+        // The tiles read the organisms from several threads at once.
+        currentField.createOrganisms();
+        nextFieldState.beginConcurrentUpdate(false);
+        try {
+            for(int[] tiles : tilesByColour) {
+                if(tiles.length > 0) {
+                    pool.invoke(new PhaseTask(tiles, 0, tiles.length, context, currentField, nextFieldState));
+                }
+            }
+        }
+        finally {
+            nextFieldState.endConcurrentUpdate();
+        }
+    }
+
+    /**
+     * Split a field of the given size into tiles and group them by colour.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    private void buildTiles(int depth, int width)
+    {
+        tilesAcross = (width + tileSize - 1) / tileSize;
+        int tilesDown = (depth + tileSize - 1) / tileSize;
+        List<List<Integer>> colours = new ArrayList<>();
+        for(int colour = 0; colour < tilesByColour.length; colour++) {
+            colours.add(new ArrayList<>());
+        }
+        for(int tileRow = 0; tileRow < tilesDown; tileRow++) {
+            for(int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+                int colour = (tileRow % 2) * 2 + (tileCol % 2);
+                colours.get(colour).add(tileRow * tilesAcross + tileCol);
+            }
+        }
+        for(int colour = 0; colour < tilesByColour.length; colour++) {
+            tilesByColour[colour] = colours.get(colour).stream().mapToInt(Integer::intValue).toArray();
+        }
+        tiledDepth = depth;
+        tiledWidth = width;
+    }
+
+    /**
+     * Update the organisms of one tile, row by row.
+     * @param tile The tile number.
+     * @param context The simulation and step being made.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The field the next state is built in.
+     * @param neighbourhood The snapshot to reuse for each animal.
+     */
+    private void stepTile(int tile, SimulationContext context, Field currentField, Field nextFieldState,
+                          Neighbourhood neighbourhood)
+    {
+        int width = currentField.getWidth();
+        int firstRow = (tile / tilesAcross) * tileSize;
+        int firstCol = (tile % tilesAcross) * tileSize;
+        int endRow = Math.min(firstRow + tileSize, currentField.getDepth());
+        int endCol = Math.min(firstCol + tileSize, width);
+        for(int row = firstRow; row < endRow; row++) {
+            int start = row * width + firstCol;
+            int end = row * width + endCol;
+            // A row of a tile no longer than a chunk lies in at most two
+            // chunks; if both are empty there is nothing to update.
+            if(end - start <= Field.CHUNK_SIZE
+               && currentField.isChunkEmpty(start / Field.CHUNK_SIZE)
+               && currentField.isChunkEmpty((end - 1) / Field.CHUNK_SIZE)) {
+                continue;
+            }
+            for(int index = start; index < end; index++) {
+                Organism anOrganism = currentField.getOrganismAt(index);
+                if(anOrganism != null) {
+                    context.select(anOrganism.getId());
+                    anOrganism.update(context, currentField, nextFieldState, neighbourhood);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates a range of the tiles of one colour, splitting the range
+     * between workers until each has a single tile.
+     */
+    private class PhaseTask extends RecursiveAction
+    {
+        private final int[] tiles;
+        private final int from, to;
+        private final SimulationContext context;
+        private final Field currentField, nextFieldState;
+
+        PhaseTask(int[] tiles, int from, int to, SimulationContext context,
+                  Field currentField, Field nextFieldState)
+        {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.context = context;
+            this.currentField = currentField;
+            this.nextFieldState = nextFieldState;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from == 1) {
+                stepTile(tiles[from], context, currentField, nextFieldState, new Neighbourhood());
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PhaseTask(tiles, from, middle, context, currentField, nextFieldState),
+                          new PhaseTask(tiles, middle, to, context, currentField, nextFieldState));
+            }
+        }
+    }
+}
@@ -30,5 +30,13 @@ public class Weather {
     public Condition getCondition() {
         return condition;
     }
+
+    /**
+     * Set the weather, e.g. when restoring a checkpoint.
+     * @param condition The new weather.
+     */
+    public void setCondition(Condition condition) {
+        this.condition = condition;
+    }
     
 }
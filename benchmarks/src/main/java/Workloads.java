@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import sealife.bench.Workload;
+
+/**
+ * The workloads measured by the benchmarks. They live in the unnamed
+ * package, with the simulation classes they use.
+ *
+ * @author Aman H, Chris M
+ */
+public class Workloads
+{
+    // The share of cells the simulation fills at the usual density.
+    private static final double USUAL_OCCUPANCY = 0.185;
+
+    /**
+     * Fill a field with organisms of random species.
+     * @param field The field, which is cleared first.
+     * @param density The factor to scale the usual occupancy by.
+     * @param seed The random seed.
+     * @return The organisms, in the order they were placed.
+     */
+    private static List<Organism> populate(Field field, double density, long seed)
+    {
+        Randomizer.setSeed(seed);
+        Randomizer.select(0, 0);
+        Random layout = new Random(seed);
+        Species[] species = Species.values();
+        List<Organism> organisms = new ArrayList<>();
+        field.clear();
+        for(int index = 0; index < field.getCellCount(); index++) {
+            if(layout.nextDouble() < USUAL_OCCUPANCY * density) {
+                Organism anOrganism = species[layout.nextInt(species.length)]
+                                          .create(field.locationOf(index));
+                field.placeOrganism(anOrganism, index);
+                organisms.add(anOrganism);
+            }
+        }
+        return organisms;
+    }
+
+    /**
+     * A statistics sink that records nothing, so that printing is not
+     * measured.
+     */
+    private static class NoStats implements StatsSink
+    {
+        @Override
+        public void record(int step, Field field)
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    /**
+     * One step of a headless simulation.
+     */
+    public static class Step implements Workload
+    {
+        private Simulator simulator;
+
+        @Override
+        public void setUp(int depth, int width, double density, long seed)
+        {
+            simulator = new Simulator(depth, width, seed, Parameters.DEFAULTS, new NoStats());
+            simulator.setDensity(density);
+        }
+
+        @Override
+        public void reset()
+        {
+            simulator.reset();
+        }
+
+        @Override
+        public Object run()
+        {
+            simulator.simulateOneStep();
+            return simulator;
+        }
+    }
+
+    /**
+     * Finding the locations around a cell.
+     */
+    public static class Adjacent implements Workload
+    {
+        // The number of locations cycled through.
+        private static final int LOCATIONS = 1024;
+
+        private Field field;
+        private final Location[] locations = new Location[LOCATIONS];
+        private int next;
+
+        @Override
+        public void setUp(int depth, int width, double density, long seed)
+        {
+            field = new Field(depth, width);
+            populate(field, density, seed);
+            Random random = new Random(seed);
+            for(int i = 0; i < LOCATIONS; i++) {
+                locations[i] = new Location(random.nextInt(depth), random.nextInt(width));
+            }
+        }
+
+        @Override
+        public Object run()
+        {
+            next = (next + 1) % LOCATIONS;
+            return field.getAdjacentLocations(locations[next]);
+        }
+    }
+
+    /**
+     * Filling a field with the organisms of a populated one.
+     */
+    public static class Place implements Workload
+    {
+        protected Field field;
+        private Organism[] organisms;
+        private int[] cells;
+
+        @Override
+        public void setUp(int depth, int width, double density, long seed)
+        {
+            field = new Field(depth, width);
+            List<Organism> placed = populate(field, density, seed);
+            organisms = placed.toArray(new Organism[0]);
+            cells = new int[organisms.length];
+            for(int i = 0; i < organisms.length; i++) {
+                cells[i] = field.indexOf(organisms[i].getLocation());
+            }
+        }
+
+        @Override
+        public Object run()
+        {
+            field.clear();
+            for(int i = 0; i < organisms.length; i++) {
+                field.placeOrganism(organisms[i], cells[i]);
+            }
+            return field;
+        }
+    }
+
+    /**
+     * Filling a field as Place does, then growing plants in it.
+     */
+    public static class Grow extends Place
+    {
+        @Override
+        public Object run()
+        {
+            super.run();
+            Plant.checkGrow(field);
+            return field;
+        }
+    }
+
+    /**
+     * What a view does with the field after each step on the
+     * simulation thread.
+     */
+    public static class Show implements Workload
+    {
+        private final FieldStats stats = new FieldStats();
+        private Field field;
+        private FieldSnapshot snapshot;
+        private int step;
+
+        @Override
+        public void setUp(int depth, int width, double density, long seed)
+        {
+            field = new Field(depth, width);
+            populate(field, density, seed);
+            snapshot = new FieldSnapshot(depth, width);
+        }
+
+        @Override
+        public Object run()
+        {
+            snapshot.capture(step++, field, 12, Weather.Condition.SUNNY,
+                             stats.getPopulationDetails(field));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package sealife.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the gc profiler, so that allocation rates
+ * are reported along with times, and writes the results as JSON to be
+ * kept as a baseline. Any JMH command line options may be given, e.g.
+ *   java -jar target/benchmarks.jar simulateOneStep -p size=120x80 -rff new.json
+ *
+ * @author Aman H, Chris M
+ */
+public class Main
+{
+    // Where the results go unless -rff says otherwise.
+    private static final String RESULTS = "jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+            .result(commandLine.getResult().orElse(RESULTS))
+            .build();
+        new Runner(options).run();
+    }
+}
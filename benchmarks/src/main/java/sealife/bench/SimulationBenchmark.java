@@ -0,0 +1,167 @@
+package sealife.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the simulation's hot paths, over field sizes,
+ * population densities and seeds.
+ * Sizes are given as width x depth, as in the usual 120x80 field.
+ *
+ * @author Aman H, Chris M
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SimulationBenchmark
+{
+    /**
+     * A workload with its parameters. Each benchmark has a subclass
+     * naming its workload.
+     */
+    @State(Scope.Thread)
+    public abstract static class Grid
+    {
+        @Param({"120x80", "500x500", "1000x1000", "4000x4000"})
+        public String size;
+        @Param({"0.5", "1", "2"})
+        public double density;
+        @Param({"42"})
+        public long seed;
+
+        Workload workload;
+
+        /**
+         * @return The name of the workload.
+         */
+        abstract String workload();
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            String[] dimensions = size.split("x");
+            workload = Workload.create(workload());
+            workload.setUp(Integer.parseInt(dimensions[1]), Integer.parseInt(dimensions[0]),
+                           density, seed);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            workload.reset();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Step extends Grid
+    {
+        @Override
+        String workload()
+        {
+            return "Step";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Adjacent extends Grid
+    {
+        @Override
+        String workload()
+        {
+            return "Adjacent";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Place extends Grid
+    {
+        @Override
+        String workload()
+        {
+            return "Place";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Grow extends Grid
+    {
+        @Override
+        String workload()
+        {
+            return "Grow";
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Show extends Grid
+    {
+        @Override
+        String workload()
+        {
+            return "Show";
+        }
+    }
+
+    /**
+     * Simulator.simulateOneStep with the default step engine. The
+     * simulation is restarted before each iteration.
+     */
+    @Benchmark
+    public Object simulateOneStep(Step state)
+    {
+        return state.workload.run();
+    }
+
+    /**
+     * Field.getAdjacentLocations for a cycle of random locations.
+     */
+    @Benchmark
+    public Object getAdjacentLocations(Adjacent state)
+    {
+        return state.workload.run();
+    }
+
+    /**
+     * Field.clear, then Field.placeOrganism for every organism of a
+     * populated field.
+     */
+    @Benchmark
+    public Object placeOrganism(Place state)
+    {
+        return state.workload.run();
+    }
+
+    /**
+     * The same as placeOrganism followed by Plant.checkGrow, so the
+     * cost of growth is the difference between the two.
+     */
+    @Benchmark
+    public Object checkGrow(Grow state)
+    {
+        return state.workload.run();
+    }
+
+    /**
+     * The work SimulatorView.showStatus does on the simulation thread:
+     * describing the population and capturing a snapshot of the field.
+     */
+    @Benchmark
+    public Object showStatus(Show state)
+    {
+        return state.workload.run();
+    }
+}
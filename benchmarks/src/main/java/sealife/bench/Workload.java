@@ -0,0 +1,50 @@
+package sealife.bench;
+
+/**
+ * One piece of simulation work to be measured.
+ * The simulation classes are in the unnamed package, which benchmark
+ * code in a named package cannot refer to, so each workload is a
+ * nested class of Workloads, in the unnamed package, found by name.
+ *
+ * @author Aman H, Chris M
+ */
+public interface Workload
+{
+    /**
+     * Build the state the work runs against.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param density The factor to scale the usual population by.
+     * @param seed The random seed.
+     */
+    void setUp(int depth, int width, double density, long seed);
+
+    /**
+     * Go back to the state built by setUp, e.g. before each iteration
+     * of work that changes it.
+     */
+    default void reset()
+    {
+    }
+
+    /**
+     * Do the work once.
+     * @return A result, for the benchmark to consume.
+     */
+    Object run();
+
+    /**
+     * Create a workload.
+     * @param name The name of the nested class of Workloads.
+     * @return The workload.
+     */
+    static Workload create(String name)
+    {
+        try {
+            return (Workload) Class.forName("Workloads$" + name).getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No workload " + name, e);
+        }
+    }
+}